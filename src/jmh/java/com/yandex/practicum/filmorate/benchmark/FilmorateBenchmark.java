@@ -0,0 +1,84 @@
+package com.yandex.practicum.filmorate.benchmark;
+
+import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.Page;
+import com.yandex.practicum.filmorate.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmorateBenchmark {
+
+    @Benchmark
+    public List<Film> storageGetFilms(FilmorateState state) {
+        return state.filmStorage.getFilms();
+    }
+
+    @Benchmark
+    public List<Film> storageMostPopularFilms(FilmorateState state) {
+        return state.filmStorage.getMostPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> storageMostPopularFilmsWithGenre(FilmorateState state) {
+        return state.filmStorage.getMostPopularFilmsWithGenre(10, state.randomGenreId());
+    }
+
+    @Benchmark
+    public List<Film> storageMostPopularFilmsWithYear(FilmorateState state) {
+        return state.filmStorage.getMostPopularFilmsWithYear(10, state.randomYear());
+    }
+
+    @Benchmark
+    public List<Film> storageMostPopularFilmsWithGenreAndYear(FilmorateState state) {
+        return state.filmStorage.getMostPopularFilmsWithGenreAndYear(10, state.randomGenreId(), state.randomYear());
+    }
+
+    @Benchmark
+    public List<Film> storageSearch(FilmorateState state) {
+        return state.filmStorage.search(state.randomWord(), true, true);
+    }
+
+    @Benchmark
+    public List<Film> storageCommonFilms(FilmorateState state) {
+        return state.filmStorage.getCommonFilms(state.randomUserId(), state.randomUserId());
+    }
+
+    @Benchmark
+    public List<Film> serviceMostPopularFilms(FilmorateState state) {
+        return state.filmService.getMostPopularFilms(10, state.randomGenreId(), null);
+    }
+
+    @Benchmark
+    public List<Film> serviceSearch(FilmorateState state) {
+        return state.filmService.search(state.randomWord(), "title,director", null);
+    }
+
+    @Benchmark
+    public List<Film> serviceCommonFilms(FilmorateState state) {
+        return state.filmService.getCommonFilms(state.randomUserId(), state.randomUserId());
+    }
+
+    @Benchmark
+    public Set<Film> serviceRecommendations(FilmorateState state) {
+        return state.userService.getRecommendationByUserId(state.randomUserId());
+    }
+
+    @Benchmark
+    public Page<User> serviceCommonFriends(FilmorateState state) {
+        return state.userService.getCommonFriends(state.randomUserId(), state.randomUserId(), null, null);
+    }
+}
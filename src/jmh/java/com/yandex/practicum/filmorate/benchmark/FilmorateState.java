@@ -0,0 +1,113 @@
+package com.yandex.practicum.filmorate.benchmark;
+
+import com.yandex.practicum.filmorate.FilmorateApplication;
+import com.yandex.practicum.filmorate.model.User;
+import com.yandex.practicum.filmorate.service.FilmService;
+import com.yandex.practicum.filmorate.service.InteractionIngestService;
+import com.yandex.practicum.filmorate.service.UserService;
+import com.yandex.practicum.filmorate.storage.FilmStorage;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+@State(Scope.Benchmark)
+public class FilmorateState {
+    private static final String[] WORDS = {"star", "night", "river", "city", "love", "war", "ghost", "summer"};
+
+    @Param("10000")
+    public int films;
+    @Param("5000")
+    public int users;
+    @Param("20")
+    public int likesPerUser;
+    @Param("20")
+    public int friendsPerUser;
+
+    ConfigurableApplicationContext context;
+    FilmStorage filmStorage;
+    FilmService filmService;
+    UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:bench" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                        "spring.h2.console.enabled=false",
+                        "filmorate.monitoring.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        filmStorage = context.getBean(FilmStorage.class);
+        filmService = context.getBean(FilmService.class);
+        userService = context.getBean(UserService.class);
+        seed(context.getBean(InteractionIngestService.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    int randomUserId() {
+        return ThreadLocalRandom.current().nextInt(users) + 1;
+    }
+
+    int randomGenreId() {
+        return ThreadLocalRandom.current().nextInt(6) + 1;
+    }
+
+    int randomYear() {
+        return 1990 + ThreadLocalRandom.current().nextInt(30);
+    }
+
+    String randomWord() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    private void seed(InteractionIngestService ingestService) throws IOException {
+        Random random = new Random(42);
+        StringBuilder filmRows = new StringBuilder();
+        for (int i = 0; i < films; i++) {
+            filmRows.append(String.format("{\"name\":\"%s %s %d\",\"description\":\"Фильм %d\"," +
+                            "\"releaseDate\":\"%d-01-01\",\"duration\":%d,\"mpa\":{\"id\":%d}," +
+                            "\"genres\":[{\"id\":%d}]}\n",
+                    WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)], i, i,
+                    1990 + random.nextInt(30), 60 + random.nextInt(120), random.nextInt(5) + 1,
+                    random.nextInt(6) + 1));
+        }
+        filmService.importFilms(stream(filmRows));
+        for (int i = 0; i < users; i++) {
+            userService.createUser(new User(0, "user" + i + "@mail.ru", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+        StringBuilder likes = new StringBuilder();
+        StringBuilder friends = new StringBuilder();
+        for (int user = 1; user <= users; user++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                likes.append(user).append(',').append(random.nextInt(films) + 1).append('\n');
+            }
+            for (int i = 0; i < friendsPerUser; i++) {
+                friends.append(user).append(',').append(random.nextInt(users) + 1).append('\n');
+            }
+        }
+        ingestService.ingestLikes(stream(likes), true, false);
+        ingestService.ingestFriendships(stream(friends), true, false);
+    }
+
+    private static ByteArrayInputStream stream(StringBuilder rows) {
+        return new ByteArrayInputStream(rows.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,303 @@
+package com.yandex.practicum.filmorate.generator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+@Slf4j
+public class DatasetGenerator {
+    private static final String[] WORDS = {"star", "night", "river", "city", "love", "war", "ghost", "summer",
+            "winter", "road", "king", "storm", "dream", "shadow", "fire", "island"};
+    private static final String[] CLEAN_ORDER = {"history_event", "review_reactions", "reviews", "user_friends",
+            "film_likes", "directors", "film_genre", "film", "director", "users"};
+
+    private final Map<String, String> options;
+    private final Random random;
+    private final int films;
+    private final int users;
+    private final int directors;
+    private final double likesPerUser;
+    private final double friendsPerUser;
+    private final int reviews;
+    private final double reactionsPerReview;
+    private final double historyRate;
+    private final double exponent;
+    private Path directory;
+
+    public DatasetGenerator(Map<String, String> options) {
+        this.options = options;
+        this.random = new Random(Long.parseLong(option("seed", "42")));
+        this.films = Integer.parseInt(option("films", "100000"));
+        this.users = Integer.parseInt(option("users", "100000"));
+        this.directors = Integer.parseInt(option("directors", String.valueOf(Math.max(1, films / 20))));
+        this.likesPerUser = Double.parseDouble(option("likesPerUser", "30"));
+        this.friendsPerUser = Double.parseDouble(option("friendsPerUser", "20"));
+        this.reviews = Integer.parseInt(option("reviews", String.valueOf(users / 10)));
+        this.reactionsPerReview = Double.parseDouble(option("reactionsPerReview", "5"));
+        this.historyRate = Double.parseDouble(option("historyRate", "0.1"));
+        this.exponent = Double.parseDouble(option("zipfExponent", "1.0"));
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Ожидался аргумент вида ключ=значение: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new DatasetGenerator(options).run();
+    }
+
+    public void run() throws IOException, SQLException {
+        directory = Files.createTempDirectory("filmorate-dataset");
+        long start = System.currentTimeMillis();
+        try (Connection connection = DriverManager.getConnection(
+                option("url", "jdbc:h2:file:./db/filmorate"), option("user", "sa"), option("password", "password"))) {
+            prepare(connection);
+            int mpa = count(connection, "mpa");
+            int genres = count(connection, "genre");
+            writeUsers();
+            writeDirectors();
+            int[] likeCounts = writeLikes();
+            writeFilms(likeCounts, mpa, genres);
+            writeFriendships();
+            writeReviews();
+            log.info("Данные сгенерированы в {} за {} мс.", directory, System.currentTimeMillis() - start);
+            load(connection);
+        } finally {
+            if (!Boolean.parseBoolean(option("keepFiles", "false"))) {
+                try (var files = Files.list(directory)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.delete(file);
+                    }
+                }
+                Files.delete(directory);
+            }
+        }
+        log.info("Генерация завершена за {} мс.", System.currentTimeMillis() - start);
+    }
+
+    private void prepare(Connection connection) throws SQLException {
+        boolean clean = Boolean.parseBoolean(option("clean", "false"));
+        if (!clean && (count(connection, "film") > 0 || count(connection, "users") > 0)) {
+            throw new IllegalStateException("База уже содержит данные, для очистки передайте clean=true.");
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String table : CLEAN_ORDER) {
+                statement.execute("DELETE FROM " + table);
+            }
+        }
+    }
+
+    private void writeUsers() throws IOException {
+        try (BufferedWriter out = writer("users")) {
+            out.write("id,email,login,name,birthday\n");
+            for (int id = 1; id <= users; id++) {
+                LocalDate birthday = LocalDate.of(1950, 1, 1).plusDays(random.nextInt(365 * 55));
+                out.write(id + ",user" + id + "@mail.ru,user" + id + ",User " + id + "," + birthday + "\n");
+            }
+        }
+    }
+
+    private void writeDirectors() throws IOException {
+        try (BufferedWriter out = writer("director")) {
+            out.write("director_id,director_name\n");
+            for (int id = 1; id <= directors; id++) {
+                out.write(id + ",Director " + WORDS[random.nextInt(WORDS.length)] + " " + id + "\n");
+            }
+        }
+    }
+
+    private int[] writeLikes() throws IOException {
+        int[] likeCounts = new int[films + 1];
+        int[] filmByRank = permutation(films);
+        ZipfSampler filmRanks = new ZipfSampler(films, exponent);
+        long timestamp = System.currentTimeMillis();
+        try (BufferedWriter likes = writer("film_likes"); BufferedWriter history = writer("history_event")) {
+            likes.write("user_id,film_id\n");
+            history.write("user_id,event_type,operation,entity_id,timestamp\n");
+            Set<Integer> liked = new HashSet<>();
+            for (int userId = 1; userId <= users; userId++) {
+                int count = powerLawCount(likesPerUser, films);
+                liked.clear();
+                for (int attempt = 0; liked.size() < count; attempt++) {
+                    int filmId = attempt < count * 4 ? filmByRank[filmRanks.sample(random) - 1]
+                            : random.nextInt(films) + 1;
+                    if (liked.add(filmId)) {
+                        likeCounts[filmId]++;
+                        likes.write(userId + "," + filmId + "\n");
+                        if (random.nextDouble() < historyRate) {
+                            history.write(userId + ",LIKE,ADD," + filmId + "," + timestamp++ + "\n");
+                        }
+                    }
+                }
+            }
+        }
+        return likeCounts;
+    }
+
+    private void writeFilms(int[] likeCounts, int mpa, int genres) throws IOException {
+        ZipfSampler directorRanks = new ZipfSampler(directors, exponent);
+        try (BufferedWriter film = writer("film");
+             BufferedWriter filmGenres = writer("film_genre");
+             BufferedWriter filmDirectors = writer("directors")) {
+            film.write("id,name,description,release_date,duration,mpa,like_count\n");
+            filmGenres.write("film_id,genre_id\n");
+            filmDirectors.write("film_id,director_id\n");
+            for (int id = 1; id <= films; id++) {
+                LocalDate releaseDate = LocalDate.of(1930, 1, 1).plusDays(random.nextInt(365 * 90));
+                film.write(id + "," + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                        + " " + id + ",Фильм номер " + id + "," + releaseDate + "," + (60 + random.nextInt(150))
+                        + "," + (random.nextInt(mpa) + 1) + "," + likeCounts[id] + "\n");
+                int first = random.nextInt(genres) + 1;
+                filmGenres.write(id + "," + first + "\n");
+                if (genres > 1 && random.nextBoolean()) {
+                    filmGenres.write(id + "," + (first % genres + 1) + "\n");
+                }
+                int directorCount = random.nextInt(3);
+                int previous = 0;
+                for (int i = 0; i < directorCount; i++) {
+                    int directorId = directorRanks.sample(random);
+                    if (directorId != previous) {
+                        filmDirectors.write(id + "," + directorId + "\n");
+                        previous = directorId;
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeFriendships() throws IOException {
+        int[] userByRank = permutation(users);
+        ZipfSampler userRanks = new ZipfSampler(users, exponent);
+        long timestamp = System.currentTimeMillis();
+        try (BufferedWriter friends = writer("user_friends");
+             BufferedWriter history = Files.newBufferedWriter(directory.resolve("history_event.csv"),
+                     StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+            friends.write("user_id,friends_id\n");
+            Set<Integer> added = new HashSet<>();
+            for (int userId = 1; userId <= users; userId++) {
+                int count = powerLawCount(friendsPerUser, users - 1);
+                added.clear();
+                for (int attempt = 0; added.size() < count; attempt++) {
+                    int friendId = attempt < count * 4 ? userByRank[userRanks.sample(random) - 1]
+                            : random.nextInt(users) + 1;
+                    if (friendId != userId && added.add(friendId)) {
+                        friends.write(userId + "," + friendId + "\n");
+                        if (random.nextDouble() < historyRate) {
+                            history.write(userId + ",FRIEND,ADD," + friendId + "," + timestamp++ + "\n");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeReviews() throws IOException {
+        int[] filmByRank = permutation(films);
+        ZipfSampler filmRanks = new ZipfSampler(films, exponent);
+        try (BufferedWriter review = writer("reviews"); BufferedWriter reactions = writer("review_reactions")) {
+            review.write("id,content,positive,film_id,user_id,useful\n");
+            reactions.write("user_id,review_id,reaction\n");
+            Set<Integer> reacted = new HashSet<>();
+            for (int id = 1; id <= reviews; id++) {
+                int count = powerLawCount(reactionsPerReview, users);
+                int useful = 0;
+                reacted.clear();
+                while (reacted.size() < count) {
+                    int userId = random.nextInt(users) + 1;
+                    if (reacted.add(userId)) {
+                        int reaction = random.nextInt(4) == 0 ? -1 : 1;
+                        useful += reaction;
+                        reactions.write(userId + "," + id + "," + reaction + "\n");
+                    }
+                }
+                review.write(id + ",Отзыв " + id + "," + random.nextBoolean() + ","
+                        + filmByRank[filmRanks.sample(random) - 1] + "," + (random.nextInt(users) + 1) + ","
+                        + useful + "\n");
+            }
+        }
+    }
+
+    private void load(Connection connection) throws SQLException {
+        load(connection, "users", "id, email, login, name, birthday");
+        load(connection, "director", "director_id, director_name");
+        load(connection, "film", "id, name, description, release_date, duration, mpa, like_count");
+        load(connection, "film_genre", "film_id, genre_id");
+        load(connection, "directors", "film_id, director_id");
+        load(connection, "film_likes", "user_id, film_id");
+        load(connection, "user_friends", "user_id, friends_id");
+        load(connection, "reviews", "id, content, positive, film_id, user_id, useful");
+        load(connection, "review_reactions", "user_id, review_id, reaction");
+        load(connection, "history_event", "user_id, event_type, operation, entity_id, timestamp");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE director ALTER COLUMN director_id RESTART WITH " + (directors + 1));
+            statement.execute("ALTER TABLE reviews ALTER COLUMN id RESTART WITH " + (reviews + 1));
+        }
+    }
+
+    private void load(Connection connection, String table, String columns) throws SQLException {
+        long start = System.currentTimeMillis();
+        String sql = "INSERT INTO " + table + " (" + columns + ") SELECT " + columns
+                + " FROM CSVREAD(?, NULL, 'charset=UTF-8')";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, directory.resolve(table + ".csv").toString());
+            int rows = statement.executeUpdate();
+            log.info("Таблица {}: загружено {} строк за {} мс.", table, rows, System.currentTimeMillis() - start);
+        }
+    }
+
+    private int powerLawCount(double mean, int max) {
+        double scale = mean / 2;
+        return (int) Math.min(max / 2, Math.round(scale / Math.sqrt(1 - random.nextDouble())));
+    }
+
+    private int[] permutation(int size) {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i + 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        return values;
+    }
+
+    private BufferedWriter writer(String table) throws IOException {
+        return Files.newBufferedWriter(directory.resolve(table + ".csv"), StandardCharsets.UTF_8);
+    }
+
+    private int count(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+}
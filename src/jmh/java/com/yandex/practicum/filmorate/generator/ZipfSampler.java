@@ -0,0 +1,55 @@
+package com.yandex.practicum.filmorate.generator;
+
+import java.util.Random;
+
+class ZipfSampler {
+    private final int size;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralSize;
+    private final double threshold;
+
+    ZipfSampler(int size, double exponent) {
+        if (size <= 0 || exponent <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры распределения Ципфа.");
+        }
+        this.size = size;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralSize = hIntegral(size + 0.5);
+        this.threshold = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    int sample(Random random) {
+        while (true) {
+            double u = hIntegralSize + random.nextDouble() * (hIntegralX1 - hIntegralSize);
+            double x = hIntegralInverse(u);
+            int k = (int) Math.max(1, Math.min(size, x + 0.5));
+            if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    private static double log1pOverX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    private static double expm1OverX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
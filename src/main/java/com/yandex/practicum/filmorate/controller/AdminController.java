@@ -0,0 +1,52 @@
+package com.yandex.practicum.filmorate.controller;
+
+import com.yandex.practicum.filmorate.model.CacheStats;
+import com.yandex.practicum.filmorate.model.IngestStats;
+import com.yandex.practicum.filmorate.model.QueryStats;
+import com.yandex.practicum.filmorate.model.SlowQuery;
+import com.yandex.practicum.filmorate.monitoring.QueryMetrics;
+import com.yandex.practicum.filmorate.model.RecommendationStats;
+import com.yandex.practicum.filmorate.service.FilmCache;
+import com.yandex.practicum.filmorate.service.InteractionIngestService;
+import com.yandex.practicum.filmorate.service.UserSimilarityIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    private final FilmCache filmCache;
+    private final UserSimilarityIndex userSimilarityIndex;
+    private final InteractionIngestService interactionIngestService;
+    private final QueryMetrics queryMetrics;
+
+    @GetMapping("/cache/films")
+    public CacheStats getFilmCacheStats() {
+        return filmCache.getStats();
+    }
+
+    @GetMapping("/recommendations")
+    public RecommendationStats getRecommendationStats() {
+        return userSimilarityIndex.getStats();
+    }
+
+    @GetMapping("/ingest")
+    public IngestStats getIngestStats() {
+        return interactionIngestService.getStats();
+    }
+
+    @GetMapping("/queries")
+    public List<QueryStats> getQueryStats() {
+        return queryMetrics.getStats();
+    }
+
+    @GetMapping("/queries/slow")
+    public List<SlowQuery> getSlowQueries() {
+        return queryMetrics.getSlowQueries();
+    }
+}
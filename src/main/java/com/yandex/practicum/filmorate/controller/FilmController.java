@@ -1,29 +1,47 @@
 package com.yandex.practicum.filmorate.controller;
 
 import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.ImportResult;
+import com.yandex.practicum.filmorate.model.IngestResult;
 import com.yandex.practicum.filmorate.service.FilmService;
+import com.yandex.practicum.filmorate.service.InteractionIngestService;
+import com.yandex.practicum.filmorate.utils.Pagination;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final InteractionIngestService interactionIngestService;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, InteractionIngestService interactionIngestService) {
         this.filmService = filmService;
+        this.interactionIngestService = interactionIngestService;
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        return filmService.getFilms();
+    public ResponseEntity<List<Film>> getAllFilms(@RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) String after) {
+        return Pagination.toResponse(filmService.getFilms(limit, after));
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllFilms() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(filmService.streamFilms());
     }
 
     @PostMapping
@@ -31,10 +49,23 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportResult importFilms(HttpServletRequest request) throws IOException {
+        return filmService.importFilms(request.getInputStream());
+    }
+
+    @PostMapping(value = "/likes/batch", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public IngestResult ingestLikes(@RequestParam(defaultValue = "true") boolean history,
+                                    HttpServletRequest request) throws IOException {
+        return interactionIngestService.ingestLikes(request.getInputStream(),
+                request.getContentType().startsWith("text/csv"), history);
+    }
+
     @GetMapping("/search")
     @ResponseBody
-    public List<Film> searchByParameter(@RequestParam String query, @RequestParam Optional<String> by) {
-        return filmService.search(query, by.orElse(null));
+    public List<Film> searchByParameter(@RequestParam String query, @RequestParam Optional<String> by,
+                                        @RequestParam(required = false) Integer limit) {
+        return filmService.search(query, by.orElse(null), limit);
     }
 
     @PutMapping
@@ -65,13 +96,16 @@ public class FilmController {
     }
 
     @GetMapping("/common")
-    public Set<Film> getCommonFilms(@RequestParam int userId, @RequestParam int friendId) {
+    public List<Film> getCommonFilms(@RequestParam int userId, @RequestParam int friendId) {
         return filmService.getCommonFilms(userId, friendId);
     }
 
     @GetMapping("/director/{directorId}")
-    public List<Film> getSortedFilmsByParameter(@PathVariable int directorId, @RequestParam String sortBy) {
-        return filmService.getSortedFilmsByParameter(directorId, sortBy);
+    public ResponseEntity<List<Film>> getSortedFilmsByParameter(@PathVariable int directorId,
+                                                                @RequestParam String sortBy,
+                                                                @RequestParam(required = false) Integer limit,
+                                                                @RequestParam(required = false) String after) {
+        return Pagination.toResponse(filmService.getSortedFilmsByParameter(directorId, sortBy, limit, after));
     }
 
     @DeleteMapping("/{id}")
@@ -2,7 +2,9 @@ package com.yandex.practicum.filmorate.controller;
 
 import com.yandex.practicum.filmorate.model.Review;
 import com.yandex.practicum.filmorate.service.ReviewsService;
+import com.yandex.practicum.filmorate.utils.Pagination;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -35,8 +37,10 @@ public class ReviewsController {
     }
 
     @GetMapping
-    public List<Review> getReviewsByFilmId(@RequestParam(required = false) String filmId, @RequestParam(required = false) String count) {
-        return reviewsService.getReviewsByFilm(filmId, count);
+    public ResponseEntity<List<Review>> getReviewsByFilmId(@RequestParam(required = false) String filmId,
+                                                           @RequestParam(required = false) String count,
+                                                           @RequestParam(required = false) String after) {
+        return Pagination.toResponse(reviewsService.getReviewsByFilm(filmId, count, after));
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -1,13 +1,22 @@
 package com.yandex.practicum.filmorate.controller;
 
 import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.FriendSuggestion;
 import com.yandex.practicum.filmorate.model.HistoryEvent;
+import com.yandex.practicum.filmorate.model.IngestResult;
 import com.yandex.practicum.filmorate.model.User;
+import com.yandex.practicum.filmorate.service.InteractionIngestService;
 import com.yandex.practicum.filmorate.service.UserService;
+import com.yandex.practicum.filmorate.utils.Pagination;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 
@@ -16,10 +25,19 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class UserController {
     private final UserService userService;
+    private final InteractionIngestService interactionIngestService;
 
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getUsers();
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) String after) {
+        return Pagination.toResponse(userService.getUsers(limit, after));
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userService.streamUsers());
     }
 
     @PostMapping
@@ -42,24 +60,43 @@ public class UserController {
         userService.addToFriends(id, friendId);
     }
 
+    @PostMapping(value = "/friends/batch", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public IngestResult ingestFriendships(@RequestParam(defaultValue = "true") boolean history,
+                                          HttpServletRequest request) throws IOException {
+        return interactionIngestService.ingestFriendships(request.getInputStream(),
+                request.getContentType().startsWith("text/csv"), history);
+    }
+
     @DeleteMapping("/{id}/friends/{friendId}")
     public void removeFromFriends(@PathVariable int id, @PathVariable int friendId) {
         userService.removeFromFriends(id, friendId);
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getUserFriendsById(@PathVariable int id) {
-        return userService.getFriendsByUserId(id);
+    public ResponseEntity<List<User>> getUserFriendsById(@PathVariable int id,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(required = false) String after) {
+        return Pagination.toResponse(userService.getFriendsByUserId(id, limit, after));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public List<User> getCommonUserFriends(@PathVariable int id, @PathVariable int otherId) {
-        return userService.getCommonFriends(id, otherId);
+    public ResponseEntity<List<User>> getCommonUserFriends(@PathVariable int id, @PathVariable int otherId,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String after) {
+        return Pagination.toResponse(userService.getCommonFriends(id, otherId, limit, after));
+    }
+
+    @GetMapping("/{id}/suggestions")
+    public List<FriendSuggestion> getFriendSuggestions(@PathVariable int id,
+                                                       @RequestParam(defaultValue = "10") int count) {
+        return userService.getFriendSuggestions(id, count);
     }
 
     @GetMapping("/{id}/feed")
-    public List<HistoryEvent> getUserFeedsByUserId(@PathVariable int id) {
-        return userService.getFeedsByUserId(id);
+    public ResponseEntity<List<HistoryEvent>> getUserFeedsByUserId(@PathVariable int id,
+                                                                   @RequestParam(required = false) Integer limit,
+                                                                   @RequestParam(required = false) String after) {
+        return Pagination.toResponse(userService.getFeedsByUserId(id, limit, after));
     }
 
     @GetMapping("/{userId}/recommendations")
@@ -1,6 +1,7 @@
 package com.yandex.practicum.filmorate.model;
 
 
+import com.yandex.practicum.filmorate.utils.CompactIntSet;
 import lombok.*;
 import org.springframework.format.annotation.DateTimeFormat;
 
@@ -23,6 +24,6 @@ public class Film {
     private int duration;
     private Mpa mpa;
     private final Set<Director> directors = new HashSet<>();
-    private final Set<Integer> likes = new HashSet<>();
+    private final CompactIntSet likes = new CompactIntSet();
     private final Set<Genre> genres = new HashSet<>();
 }
@@ -0,0 +1,15 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class FilmRank {
+    private int filmId;
+    private int likes;
+    private LocalDate releaseDate;
+    private int[] genreIds;
+}
@@ -0,0 +1,12 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class FilmTitle {
+    private int filmId;
+    private String name;
+    private int[] directorIds;
+}
@@ -0,0 +1,11 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class FriendSuggestion {
+    private User user;
+    private int mutualFriends;
+}
@@ -0,0 +1,11 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class Friendship {
+    private int userId;
+    private int friendId;
+}
@@ -0,0 +1,14 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ImportResult {
+    private int imported;
+    private int failed;
+    private List<ImportError> errors;
+}
@@ -0,0 +1,16 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class IngestResult {
+    private long processed;
+    private long inserted;
+    private long duplicates;
+    private long failed;
+    private List<ImportError> errors;
+}
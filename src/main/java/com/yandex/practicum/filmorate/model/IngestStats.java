@@ -0,0 +1,14 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class IngestStats {
+    private int running;
+    private long processed;
+    private long inserted;
+    private long duplicates;
+    private long failed;
+}
@@ -0,0 +1,13 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class Page<T> {
+    private List<T> items;
+    private String nextCursor;
+}
@@ -0,0 +1,14 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RecommendationStats {
+    private String mode;
+    private long requests;
+    private double averageCandidates;
+    private long recallSamples;
+    private double recall;
+}
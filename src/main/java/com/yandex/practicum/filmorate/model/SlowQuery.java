@@ -0,0 +1,17 @@
+package com.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SlowQuery {
+    private String method;
+    private String sql;
+    private List<Object> parameters;
+    private double durationMs;
+    private long timestamp;
+    private String plan;
+}
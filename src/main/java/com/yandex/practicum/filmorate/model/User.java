@@ -1,5 +1,6 @@
 package com.yandex.practicum.filmorate.model;
 
+import com.yandex.practicum.filmorate.utils.CompactIntSet;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,8 +8,6 @@ import lombok.NonNull;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @AllArgsConstructor
@@ -23,5 +22,5 @@ public class User {
     @NonNull
     @DateTimeFormat(pattern = "yyyy-MM-dd")
     private LocalDate birthday;
-    private final Set<Integer> friends = new HashSet<>();
+    private final CompactIntSet friends = new CompactIntSet();
 }
@@ -0,0 +1,146 @@
+package com.yandex.practicum.filmorate.monitoring;
+
+import com.yandex.practicum.filmorate.model.QueryStats;
+import com.yandex.practicum.filmorate.model.SlowQuery;
+import com.yandex.practicum.filmorate.utils.LatencyHistogram;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class QueryMetrics {
+    private static final String UNKNOWN_METHOD = "unknown";
+    private static final ThreadLocal<String> CURRENT_METHOD = new ThreadLocal<>();
+    private static final Set<String> EXPLAINABLE = Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "MERGE", "WITH");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long slowQueryNanos;
+    private final AtomicReferenceArray<SlowQuery> slowQueries;
+    private final AtomicReference<PendingExplain> pendingExplain = new AtomicReference<>();
+    private final AtomicLong slowQueryCursor = new AtomicLong();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public QueryMetrics(JdbcTemplate jdbcTemplate,
+                        @Value("${filmorate.monitoring.slow-query-ms:50}") long slowQueryMs,
+                        @Value("${filmorate.monitoring.slow-query-buffer:100}") int slowQueryBuffer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMs);
+        this.slowQueries = new AtomicReferenceArray<>(slowQueryBuffer);
+    }
+
+    String enter(String method) {
+        String previous = CURRENT_METHOD.get();
+        CURRENT_METHOD.set(method);
+        return previous;
+    }
+
+    void exit(String method, String previous, long nanos) {
+        if (previous == null) {
+            CURRENT_METHOD.remove();
+        } else {
+            CURRENT_METHOD.set(previous);
+        }
+        histograms.computeIfAbsent(method, key -> new LatencyHistogram())
+                .record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    boolean isSlow(long nanos) {
+        return nanos >= slowQueryNanos;
+    }
+
+    void recordSlowQuery(String sql, List<Object> parameters, long nanos, boolean explainable) {
+        String method = CURRENT_METHOD.get();
+        SlowQuery query = new SlowQuery(method == null ? UNKNOWN_METHOD : method, sql, parameters, toMillis(nanos),
+                System.currentTimeMillis(), null);
+        int slot = (int) (slowQueryCursor.getAndIncrement() % slowQueries.length());
+        slowQueries.set(slot, query);
+        if (explainable && EXPLAINABLE.contains(keyword(sql))) {
+            pendingExplain.compareAndSet(null, new PendingExplain(slot, query));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.monitoring.explain-interval-ms:1000}")
+    public void explainPending() {
+        PendingExplain pending = pendingExplain.getAndSet(null);
+        if (pending == null) {
+            return;
+        }
+        SlowQuery query = pending.query;
+        String plan;
+        try {
+            plan = String.join("\n", jdbcTemplate.query("EXPLAIN " + query.getSql().trim(),
+                    (rs, rowNum) -> rs.getString(1), query.getParameters().toArray())).trim();
+        } catch (DataAccessException e) {
+            log.debug("Не удалось получить план запроса {}.", query.getSql(), e);
+            plan = "План недоступен: " + e.getMostSpecificCause().getMessage();
+        }
+        slowQueries.compareAndSet(pending.slot, query, new SlowQuery(query.getMethod(), query.getSql(),
+                query.getParameters(), query.getDurationMs(), query.getTimestamp(), plan));
+    }
+
+    public List<QueryStats> getStats() {
+        return histograms.entrySet().stream()
+                .map(entry -> {
+                    LatencyHistogram histogram = entry.getValue();
+                    return new QueryStats(entry.getKey(),
+                            histogram.getCount(),
+                            histogram.getTotal() / 1000.0,
+                            histogram.getMean() / 1000.0,
+                            histogram.percentile(50) / 1000.0,
+                            histogram.percentile(95) / 1000.0,
+                            histogram.percentile(99) / 1000.0,
+                            histogram.getMax() / 1000.0);
+                })
+                .sorted(Comparator.comparingDouble(QueryStats::getTotalMs).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public List<SlowQuery> getSlowQueries() {
+        long end = slowQueryCursor.get();
+        List<SlowQuery> result = new ArrayList<>();
+        for (long i = end - 1; i >= Math.max(0, end - slowQueries.length()); i--) {
+            SlowQuery query = slowQueries.get((int) (i % slowQueries.length()));
+            if (query != null) {
+                result.add(query);
+            }
+        }
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String keyword(String sql) {
+        String trimmed = sql.trim();
+        int space = trimmed.indexOf(' ');
+        return (space < 0 ? trimmed : trimmed.substring(0, space)).toUpperCase(Locale.ROOT);
+    }
+
+    private static class PendingExplain {
+        private final int slot;
+        private final SlowQuery query;
+
+        private PendingExplain(int slot, SlowQuery query) {
+            this.slot = slot;
+            this.query = query;
+        }
+    }
+}
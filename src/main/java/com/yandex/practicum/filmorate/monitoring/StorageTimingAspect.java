@@ -0,0 +1,29 @@
+package com.yandex.practicum.filmorate.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@ConditionalOnProperty(name = "filmorate.monitoring.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+public class StorageTimingAspect {
+    private final QueryMetrics queryMetrics;
+
+    @Around("within(com.yandex.practicum.filmorate.storage.dao..*) && execution(public * *(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "."
+                + joinPoint.getSignature().getName();
+        String previous = queryMetrics.enter(method);
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            queryMetrics.exit(method, previous, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.yandex.practicum.filmorate.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.monitoring.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TimedDataSourcePostProcessor implements BeanPostProcessor {
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeBatch", "executeLargeUpdate", "executeLargeBatch");
+
+    private final ObjectProvider<QueryMetrics> queryMetrics;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !Proxy.isProxyClass(bean.getClass())) {
+            DataSource target = (DataSource) bean;
+            return Proxy.newProxyInstance(bean.getClass().getClassLoader(),
+                    ClassUtils.getAllInterfacesForClass(bean.getClass()),
+                    (proxy, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        return result instanceof Connection ? wrapConnection((Connection) result) : result;
+                    });
+        }
+        return bean;
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                        return wrapStatement((Statement) result, sql, method.getReturnType().asSubclass(Statement.class));
+                    }
+                    return result;
+                });
+    }
+
+    private Statement wrapStatement(Statement statement, String preparedSql, Class<? extends Statement> type) {
+        InvocationHandler handler = new InvocationHandler() {
+            private final List<Object> parameters = new ArrayList<>();
+            private final List<String> batch = new ArrayList<>();
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    int index = (Integer) args[0] - 1;
+                    while (parameters.size() <= index) {
+                        parameters.add(null);
+                    }
+                    parameters.set(index, name.equals("setNull") ? null : args[1]);
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (name.equals("addBatch") && args != null && args.length == 1) {
+                    batch.add((String) args[0]);
+                } else if (name.equals("clearBatch")) {
+                    batch.clear();
+                }
+                if (!EXECUTE_METHODS.contains(name)) {
+                    return TimedDataSourcePostProcessor.invoke(statement, method, args);
+                }
+                long start = System.nanoTime();
+                try {
+                    return TimedDataSourcePostProcessor.invoke(statement, method, args);
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    QueryMetrics metrics = queryMetrics.getIfAvailable();
+                    if (metrics != null && metrics.isSlow(nanos)) {
+                        recordSlowQuery(metrics, args, nanos);
+                    }
+                    if (name.endsWith("Batch")) {
+                        batch.clear();
+                    }
+                }
+            }
+
+            private void recordSlowQuery(QueryMetrics metrics, Object[] args, long nanos) {
+                if (preparedSql != null) {
+                    metrics.recordSlowQuery(preparedSql, new ArrayList<>(parameters), nanos, true);
+                } else if (args != null && args.length > 0 && args[0] instanceof String) {
+                    metrics.recordSlowQuery((String) args[0], List.of(), nanos, true);
+                } else if (!batch.isEmpty()) {
+                    metrics.recordSlowQuery(String.join(";\n", batch), List.of(), nanos, false);
+                } else {
+                    metrics.recordSlowQuery(null, List.of(), nanos, false);
+                }
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -14,6 +14,8 @@ import java.util.List;
 public class DirectorService {
 
     private final DirectorStorage directorStorage;
+    private final FilmCache filmCache;
+    private final FilmSearchIndex filmSearchIndex;
 
     public List<Director> getDirectors() {
         return directorStorage.getDirectors();
@@ -28,16 +30,23 @@ public class DirectorService {
     }
 
     public Director postDirector(Director director) {
-        return directorStorage.addDirector(director);
+        Director created = directorStorage.addDirector(director);
+        filmSearchIndex.putDirector(created);
+        return created;
     }
 
     public Director updateDirector(Director director) {
         getDirectorById(director.getId());
-        return directorStorage.updateDirector(director);
+        Director updated = directorStorage.updateDirector(director);
+        filmCache.invalidateByDirector(director.getId());
+        filmSearchIndex.putDirector(updated);
+        return updated;
     }
 
     public void deleteDirectorById(int id) {
         getDirectorById(id);
         directorStorage.deleteDirectorById(id);
+        filmCache.invalidateByDirector(id);
+        filmSearchIndex.removeDirector(id);
     }
 }
\ No newline at end of file
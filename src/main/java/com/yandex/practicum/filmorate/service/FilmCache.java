@@ -0,0 +1,111 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.yandex.practicum.filmorate.model.CacheStats;
+import com.yandex.practicum.filmorate.model.Director;
+import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.Genre;
+import com.yandex.practicum.filmorate.model.Mpa;
+import com.yandex.practicum.filmorate.storage.FilmStorage;
+import com.yandex.practicum.filmorate.storage.GenresStorage;
+import com.yandex.practicum.filmorate.storage.MpaStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class FilmCache {
+    private final FilmStorage filmStorage;
+    private final MpaStorage mpaStorage;
+    private final GenresStorage genresStorage;
+    private final int maxSize;
+    private final Map<Integer, Optional<Film>> films;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long generation = 0;
+
+    public FilmCache(FilmStorage filmStorage, MpaStorage mpaStorage, GenresStorage genresStorage,
+                     @Value("${filmorate.cache.films.max-size:10000}") int maxSize) {
+        this.filmStorage = filmStorage;
+        this.mpaStorage = mpaStorage;
+        this.genresStorage = genresStorage;
+        this.maxSize = maxSize;
+        this.films = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Optional<Film>> eldest) {
+                if (size() > FilmCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<Film> getFilmById(int id) {
+        long loadedGeneration;
+        synchronized (films) {
+            Optional<Film> cached = films.get(id);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.map(this::copyOf);
+            }
+            loadedGeneration = generation;
+        }
+        misses.incrementAndGet();
+        Optional<Film> film = filmStorage.getFilmById(id);
+        synchronized (films) {
+            // фильм мог измениться, пока мы ходили в базу
+            if (generation == loadedGeneration) {
+                films.put(id, film);
+            }
+        }
+        return film.map(this::copyOf);
+    }
+
+    public void invalidate(int id) {
+        synchronized (films) {
+            generation++;
+            films.remove(id);
+        }
+    }
+
+    public void invalidate(Collection<Integer> ids) {
+        synchronized (films) {
+            generation++;
+            ids.forEach(films::remove);
+        }
+    }
+
+    public void invalidateByDirector(int directorId) {
+        synchronized (films) {
+            generation++;
+            films.values().removeIf(film -> film.isPresent() && film.get().getDirectors().stream()
+                    .anyMatch(director -> director.getId() == directorId));
+        }
+    }
+
+    private Film copyOf(Film film) {
+        Mpa mpa = film.getMpa() == null ? null : mpaStorage.getMpaById(film.getMpa().getId())
+                .orElseGet(() -> new Mpa(film.getMpa().getId(), film.getMpa().getName()));
+        Film copy = new Film(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), mpa);
+        film.getGenres().forEach(genre -> copy.getGenres().add(genresStorage.getGenreById(genre.getId())
+                .orElseGet(() -> new Genre(genre.getId(), genre.getName()))));
+        film.getDirectors().forEach(director -> copy.getDirectors()
+                .add(new Director(director.getId(), director.getName())));
+        copy.getLikes().addAll(film.getLikes());
+        return copy;
+    }
+
+    public CacheStats getStats() {
+        synchronized (films) {
+            return new CacheStats(films.size(), maxSize, hits.get(), misses.get(), evictions.get());
+        }
+    }
+}
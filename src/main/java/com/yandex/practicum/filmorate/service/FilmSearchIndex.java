@@ -0,0 +1,196 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.yandex.practicum.filmorate.model.Director;
+import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.storage.DirectorStorage;
+import com.yandex.practicum.filmorate.storage.FilmStorage;
+import com.yandex.practicum.filmorate.utils.Pagination;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+    private static final int GRAM_SIZE = 3;
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, String> titles = new HashMap<>();
+    private final Map<String, Set<Integer>> titleGrams = new HashMap<>();
+    private final Map<Integer, String> directorNames = new HashMap<>();
+    private final Map<String, Set<Integer>> directorGrams = new HashMap<>();
+    private final Map<Integer, Set<Integer>> filmDirectors = new HashMap<>();
+    private final Map<Integer, Set<Integer>> directorFilms = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        List<Director> directors = directorStorage.getDirectors();
+        lock.writeLock().lock();
+        try {
+            directors.forEach(this::indexDirector);
+            filmStorage.streamFilmTitles(film -> indexFilm(film.getFilmId(), film.getName(),
+                    Arrays.stream(film.getDirectorIds()).boxed().collect(Collectors.toCollection(HashSet::new))));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен, фильмов: {}, режиссеров: {}.", titles.size(), directors.size());
+    }
+
+    public void putFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            unindexFilm(film.getId());
+            indexFilm(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            unindexFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            unindexDirectorName(director.getId());
+            indexDirector(director);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        lock.writeLock().lock();
+        try {
+            unindexDirectorName(directorId);
+            Set<Integer> films = directorFilms.remove(directorId);
+            if (films != null) {
+                films.forEach(filmId -> filmDirectors.getOrDefault(filmId, Collections.emptySet()).remove(directorId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> search(String query, boolean byDirector, boolean byTitle, Integer limit) {
+        long max = limit == null ? Long.MAX_VALUE : Pagination.limit(limit);
+        String text = query.toLowerCase(Locale.ROOT);
+        Set<Integer> found = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            if (byTitle) {
+                found.addAll(find(text, titles, titleGrams));
+            }
+            if (byDirector) {
+                find(text, directorNames, directorGrams).forEach(directorId ->
+                        found.addAll(directorFilms.getOrDefault(directorId, Collections.emptySet())));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found.stream()
+                .sorted(Comparator.reverseOrder())
+                .limit(max)
+                .collect(Collectors.toList());
+    }
+
+    private Set<Integer> find(String text, Map<Integer, String> values, Map<String, Set<Integer>> grams) {
+        Collection<Integer> candidates = values.keySet();
+        if (text.length() >= GRAM_SIZE) {
+            List<Set<Integer>> postings = new ArrayList<>();
+            for (String gram : grams(text)) {
+                Set<Integer> posting = grams.get(gram);
+                if (posting == null) {
+                    return Collections.emptySet();
+                }
+                postings.add(posting);
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+            candidates = postings.get(0);
+            for (Set<Integer> posting : postings.subList(1, postings.size())) {
+                candidates = candidates.stream()
+                        .filter(posting::contains)
+                        .collect(Collectors.toList());
+            }
+        }
+        return candidates.stream()
+                .filter(id -> values.get(id).contains(text))
+                .collect(Collectors.toSet());
+    }
+
+    private void indexFilm(Film film) {
+        indexFilm(film.getId(), film.getName(), film.getDirectors().stream()
+                .map(Director::getId)
+                .collect(Collectors.toCollection(HashSet::new)));
+    }
+
+    private void indexFilm(int filmId, String name, Set<Integer> directors) {
+        String title = name.toLowerCase(Locale.ROOT);
+        titles.put(filmId, title);
+        grams(title).forEach(gram -> titleGrams.computeIfAbsent(gram, key -> new HashSet<>()).add(filmId));
+        filmDirectors.put(filmId, directors);
+        directors.forEach(directorId ->
+                directorFilms.computeIfAbsent(directorId, key -> new HashSet<>()).add(filmId));
+    }
+
+    private void unindexFilm(int filmId) {
+        String title = titles.remove(filmId);
+        if (title != null) {
+            removeGrams(titleGrams, title, filmId);
+        }
+        Set<Integer> directors = filmDirectors.remove(filmId);
+        if (directors != null) {
+            directors.forEach(directorId ->
+                    directorFilms.getOrDefault(directorId, Collections.emptySet()).remove(filmId));
+        }
+    }
+
+    private void indexDirector(Director director) {
+        String name = director.getName().toLowerCase(Locale.ROOT);
+        directorNames.put(director.getId(), name);
+        grams(name).forEach(gram ->
+                directorGrams.computeIfAbsent(gram, key -> new HashSet<>()).add(director.getId()));
+    }
+
+    private void unindexDirectorName(int directorId) {
+        String name = directorNames.remove(directorId);
+        if (name != null) {
+            removeGrams(directorGrams, name, directorId);
+        }
+    }
+
+    private void removeGrams(Map<String, Set<Integer>> grams, String value, int id) {
+        for (String gram : grams(value)) {
+            Set<Integer> posting = grams.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+}
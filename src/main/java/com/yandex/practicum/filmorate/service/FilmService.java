@@ -2,21 +2,37 @@ package com.yandex.practicum.filmorate.service;
 
 import com.yandex.practicum.filmorate.exeption.NotFoundException;
 import com.yandex.practicum.filmorate.exeption.ValidationException;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yandex.practicum.filmorate.model.Director;
 import com.yandex.practicum.filmorate.model.Film;
 import com.yandex.practicum.filmorate.model.Genre;
+import com.yandex.practicum.filmorate.model.ImportError;
+import com.yandex.practicum.filmorate.model.ImportResult;
 import com.yandex.practicum.filmorate.model.Mpa;
+import com.yandex.practicum.filmorate.model.Page;
 import com.yandex.practicum.filmorate.storage.*;
+import com.yandex.practicum.filmorate.utils.Pagination;
 import com.yandex.practicum.filmorate.utils.Util;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @Slf4j
@@ -27,10 +43,21 @@ public class FilmService {
 
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final HistoryEventWriter historyEventWriter;
     private final MpaStorage mpaStorage;
     private final GenresStorage genresStorage;
     private final DirectorStorage directorStorage;
-    private int idGenerator = 0;
+    private final PopularFilmsLeaderboard popularFilmsLeaderboard;
+    private final FilmCache filmCache;
+    private final FilmSearchIndex filmSearchIndex;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final UserSimilarityIndex userSimilarityIndex;
+    private final ObjectMapper objectMapper;
+    private final IdAllocator idAllocator;
+    @Value("${filmorate.common-films.bitmap-threshold:10000}")
+    private int commonFilmsBitmapThreshold;
+    @Value("${filmorate.import.chunk-size:1000}")
+    private int importChunkSize;
 
     public Film createFilm(Film film) {
         if (film == null) {
@@ -43,15 +70,52 @@ public class FilmService {
                 });
 
         fillFilmGenres(film);
-        film.setId(generatedId());
+        film.setId(idAllocator.nextFilmId());
         film.setMpa(mpa);
-        return filmStorage.createFilm(film);
+        Film created = filmStorage.createFilm(film);
+        filmCache.invalidate(created.getId());
+        popularFilmsLeaderboard.addFilm(created);
+        filmSearchIndex.putFilm(created);
+        return created;
     }
 
-    public List<Film> search(String query, String by) {
+    public ImportResult importFilms(InputStream body) throws IOException {
+        List<ImportError> errors = new ArrayList<>();
+        List<Film> chunk = new ArrayList<>(importChunkSize);
+        List<Integer> positions = new ArrayList<>(importChunkSize);
+        int imported = 0;
+        int index = 0;
+        try (MappingIterator<Film> films = objectMapper.readerFor(Film.class).readValues(body)) {
+            while (films.hasNextValue()) {
+                try {
+                    chunk.add(films.nextValue());
+                    positions.add(index);
+                } catch (JsonParseException e) {
+                    throw e;
+                } catch (JsonMappingException e) {
+                    errors.add(new ImportError(index, "Некорректный фильм: " + e.getOriginalMessage()));
+                }
+                index++;
+                if (chunk.size() == importChunkSize) {
+                    imported += importChunk(chunk, positions, errors);
+                    chunk.clear();
+                    positions.clear();
+                }
+            }
+        } catch (JsonParseException e) {
+            errors.add(new ImportError(index, "Некорректный JSON, импорт остановлен: " + e.getOriginalMessage()));
+        }
+        imported += importChunk(chunk, positions, errors);
+        log.info("Импорт фильмов завершен, добавлено: {}, ошибок: {}.", imported, errors.size());
+        return new ImportResult(imported, errors.size(), errors);
+    }
+
+    public List<Film> search(String query, String by, Integer limit) {
         Map<String, Boolean> queryParams = parseQueryBy(by);
         if (StringUtils.isNotBlank(query)) {
-            return filmStorage.search(query, queryParams.get("director"), queryParams.get("title"));
+            boolean title = queryParams.get("title");
+            boolean director = queryParams.get("director") || !title;
+            return filmStorage.getFilmsByIds(filmSearchIndex.search(query, director, title, limit));
         } else {
             log.warn("film search query is empty.");
             return new ArrayList<>();
@@ -63,7 +127,7 @@ public class FilmService {
             throw new ValidationException("Фильм не может быть обновлен.");
         }
 
-        if (filmStorage.getFilmById(film.getId()).isEmpty()) {
+        if (!filmStorage.existsById(film.getId())) {
             log.warn("Фильм с id {} не существует.", film.getId());
             throw new NotFoundException("Фильм не существует.");
         }
@@ -74,59 +138,72 @@ public class FilmService {
                 });
         film.setMpa(mpa);
         fillFilmGenres(film);
-        return filmStorage.updateFilm(film);
+        Film updated = filmStorage.updateFilm(film);
+        filmCache.invalidate(updated.getId());
+        popularFilmsLeaderboard.updateFilm(updated);
+        filmSearchIndex.putFilm(updated);
+        return updated;
     }
 
     public Film getFilmById(int id) {
-        return filmStorage.getFilmById(id).orElseThrow(() -> {
+        return filmCache.getFilmById(id).orElseThrow(() -> {
             throw new NotFoundException("Фильм с id = " + id + " не существует.");
         });
     }
 
     public void likeFilm(int userId, int filmId) {
-        userStorage.getUserById(userId).orElseThrow(() -> {
+        if (!userStorage.existsById(userId)) {
             throw new NotFoundException("Пользователя с id = " + userId + " не существует.");
-        });
-
-        Film film = filmStorage.getFilmById(filmId).orElseThrow(() -> {
+        }
+        if (!filmStorage.existsById(filmId)) {
             throw new NotFoundException("Фильм с id = " + filmId + " не существует.");
-        });
-        filmStorage.likeFilm(film, userId);
-        userStorage.addHistoryEvent(userId, "LIKE", "ADD", filmId);
+        }
+        if (filmStorage.likeFilm(filmId, userId)) {
+            filmCache.invalidate(filmId);
+            popularFilmsLeaderboard.like(filmId);
+            userSimilarityIndex.like(userId, filmId);
+        }
+        historyEventWriter.write(userId, "LIKE", "ADD", filmId);
     }
 
     public void unlikeFilm(int userId, int filmId) {
-        userStorage.getUserById(userId).orElseThrow(() -> {
+        if (!userStorage.existsById(userId)) {
             throw new NotFoundException("Пользователя с id = " + userId + " не существует.");
-        });
-
-        Film film = filmStorage.getFilmById(filmId).orElseThrow(() -> {
+        }
+        if (!filmStorage.existsById(filmId)) {
             throw new NotFoundException("Фильм с id = " + filmId + " не существует.");
-        });
+        }
+
+        if (filmStorage.unlikeFilm(filmId, userId)) {
+            filmCache.invalidate(filmId);
+            popularFilmsLeaderboard.unlike(filmId);
+            userSimilarityIndex.unlike(userId, filmId);
+        }
+        historyEventWriter.write(userId, "LIKE", "REMOVE", filmId);
 
-        filmStorage.unlikeFilm(film, userId);
-        userStorage.addHistoryEvent(userId, "LIKE", "REMOVE", filmId);
+    }
 
+    public StreamingResponseBody streamFilms() {
+        return jsonArrayStreamer.stream(filmStorage::streamFilms);
     }
 
-    public List<Film> getFilms() {
-        List<Film> films = filmStorage.getFilms();
-        for (Film film : films) {
-            film.getGenres().addAll(genresStorage.getFilmGenres(film.getId()));
-            film.getDirectors().addAll(directorStorage.getDirectorByFilmId(film.getId()));
+    public Page<Film> getFilms(Integer limit, String after) {
+        if (limit == null && after == null) {
+            return new Page<>(filmStorage.getFilms(), null);
         }
-        return films;
+        int pageSize = Pagination.limit(limit);
+        long[] cursor = Pagination.decode(after, 1);
+        List<Film> films = filmStorage.getFilmsPage(cursor == null ? 0 : (int) cursor[0], pageSize + 1);
+        return Pagination.page(films, pageSize, film -> new long[]{film.getId()});
     }
 
     public List<Film> getMostPopularFilms(Integer count, Integer genreId, Integer year) {
-        if (genreId == null && year == null) {
-            return filmStorage.getMostPopularFilms(count);
-        } else if (genreId == null) {
-            return filmStorage.getMostPopularFilmsWithYear(count, year);
-        } else if (year == null) {
-            return filmStorage.getMostPopularFilmsWithGenre(count, genreId);
-        } else {
-            if (genresStorage.getGenres().get(genreId) == null) {
+        if (count != null && count <= 0) {
+            log.warn("Некорректное количество популярных фильмов {}.", count);
+            throw new ValidationException("Количество фильмов должно быть больше нуля.");
+        }
+        if (genreId != null && year != null) {
+            if (genresStorage.getGenreById(genreId).isEmpty()) {
                 log.warn("Жанр не найден, id = {}.", genreId);
                 throw new ValidationException("Жанр не найден.");
             }
@@ -134,28 +211,52 @@ public class FilmService {
                 log.warn("Год меньше {} или больше {}.", CINEMA_BIRTHDAY.getYear(), LocalDate.now().getYear());
                 throw new ValidationException("Год меньше " + CINEMA_BIRTHDAY.getYear() + " или больше " + LocalDate.now().getYear() + ".");
             }
-            return filmStorage.getMostPopularFilmsWithGenreAndYear(count, genreId, year);
         }
+        return filmStorage.getFilmsByIds(popularFilmsLeaderboard.getTopFilmIds(count, genreId, year));
     }
 
-    public Set<Film> getCommonFilms(int userId, int friendId) {
-        return filmStorage.getCommonFilms(userId, friendId);
+    public List<Film> getCommonFilms(int userId, int friendId) {
+        if (userSimilarityIndex.countLikes(userId) < commonFilmsBitmapThreshold
+                || userSimilarityIndex.countLikes(friendId) < commonFilmsBitmapThreshold) {
+            return filmStorage.getCommonFilms(userId, friendId);
+        }
+        List<Film> films = filmStorage.getFilmsByIds(userSimilarityIndex.getCommonFilmIds(userId, friendId));
+        films.sort(Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed()
+                .thenComparingInt(Film::getId));
+        return films;
     }
 
-    public List<Film> getSortedFilmsByParameter(int directorId, String sortBy) {
+    public Page<Film> getSortedFilmsByParameter(int directorId, String sortBy, Integer limit, String after) {
         try {
             directorStorage.getDirectorById(directorId);
-            return filmStorage.getSortedFilms(directorId, sortBy);
+            if (limit == null && after == null) {
+                return filmStorage.getSortedFilms(directorId, sortBy, null, null);
+            }
+            return filmStorage.getSortedFilms(directorId, sortBy, Pagination.decode(after, 2),
+                    Pagination.limit(limit));
         } catch (EmptyResultDataAccessException e) {
             throw new NotFoundException("Режиссера с таким id не существует");
         }
     }
 
     public void deleteFilmById(int id) {
-        filmStorage.getFilmById(id).orElseThrow(() -> {
+        if (!filmStorage.existsById(id)) {
             throw new NotFoundException("Фильма с id = " + id + " не существует.");
-        });
+        }
         filmStorage.removeFilmById(id);
+        filmCache.invalidate(id);
+        filmSearchIndex.removeFilm(id);
+        popularFilmsLeaderboard.removeFilm(id);
+        userSimilarityIndex.removeFilm(id);
+    }
+
+    @Scheduled(cron = "${filmorate.likes.repair-cron:-}")
+    public void rebuildLikeCounts() {
+        List<Integer> repaired = filmStorage.rebuildLikeCounts();
+        if (!repaired.isEmpty()) {
+            popularFilmsLeaderboard.reload(filmStorage.getFilmRanks(repaired));
+            log.warn("Счетчики лайков пересчитаны для {} фильмов.", repaired.size());
+        }
     }
 
     private void validationFilm(Film film) {
@@ -180,6 +281,93 @@ public class FilmService {
         }
     }
 
+    private int importChunk(List<Film> chunk, List<Integer> positions, List<ImportError> errors) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> directors = directorStorage.getExistingIds(chunk.stream()
+                .filter(film -> film.getDirectors() != null)
+                .flatMap(film -> film.getDirectors().stream())
+                .filter(Objects::nonNull)
+                .map(Director::getId)
+                .collect(Collectors.toSet()));
+        Film[] films = new Film[chunk.size()];
+        String[] failures = new String[chunk.size()];
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+            try {
+                films[i] = validateImportedFilm(chunk.get(i), directors);
+            } catch (ValidationException | NotFoundException e) {
+                failures[i] = e.getMessage();
+            } catch (RuntimeException e) {
+                log.warn("Не удалось проверить фильм на позиции {}.", positions.get(i), e);
+                failures[i] = "Некорректный фильм: " + e.getMessage();
+            }
+        });
+        List<Film> valid = new ArrayList<>(chunk.size());
+        List<Integer> validPositions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (failures[i] != null) {
+                errors.add(new ImportError(positions.get(i), failures[i]));
+            } else {
+                Film film = films[i];
+                film.setId(idAllocator.nextFilmId());
+                valid.add(film);
+                validPositions.add(positions.get(i));
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        try {
+            filmStorage.createFilms(valid);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось сохранить пачку из {} фильмов.", valid.size(), e);
+            validPositions.forEach(position -> errors.add(new ImportError(position,
+                    "Не удалось сохранить фильм: " + e.getMostSpecificCause().getMessage())));
+            return 0;
+        }
+        filmCache.invalidate(valid.stream().map(Film::getId).collect(Collectors.toList()));
+        valid.forEach(film -> {
+            popularFilmsLeaderboard.addFilm(film);
+            filmSearchIndex.putFilm(film);
+        });
+        return valid.size();
+    }
+
+    private Film validateImportedFilm(Film imported, Set<Integer> directors) {
+        if (imported.getName() == null || imported.getDescription() == null || imported.getReleaseDate() == null
+                || imported.getMpa() == null) {
+            throw new ValidationException("Не заполнены обязательные поля фильма.");
+        }
+        Film film = withEmptyCollections(imported);
+        validationFilm(film);
+        film.setMpa(mpaStorage.getMpaById(film.getMpa().getId())
+                .orElseThrow(() -> new NotFoundException("Рейтинг не существует.")));
+        fillFilmGenres(film);
+        for (Director director : film.getDirectors()) {
+            if (!directors.contains(director.getId())) {
+                throw new NotFoundException("Режиссера с id = " + director.getId() + " не существует.");
+            }
+        }
+        return film;
+    }
+
+    private Film withEmptyCollections(Film imported) {
+        if (imported.getGenres() != null && imported.getDirectors() != null && imported.getLikes() != null
+                && !imported.getGenres().contains(null) && !imported.getDirectors().contains(null)) {
+            return imported;
+        }
+        Film film = new Film(imported.getId(), imported.getName(), imported.getDescription(),
+                imported.getReleaseDate(), imported.getDuration(), imported.getMpa());
+        if (imported.getGenres() != null) {
+            imported.getGenres().stream().filter(Objects::nonNull).forEach(film.getGenres()::add);
+        }
+        if (imported.getDirectors() != null) {
+            imported.getDirectors().stream().filter(Objects::nonNull).forEach(film.getDirectors()::add);
+        }
+        return film;
+    }
+
     private void fillFilmGenres(Film film) {
         if (film.getGenres() != null) {
             List<Integer> genresIds = film.getGenres()
@@ -196,10 +384,6 @@ public class FilmService {
         }
     }
 
-    private int generatedId() {
-        return ++idGenerator;
-    }
-
     private Map<String, Boolean> parseQueryBy(String by) {
         int maximumParametersSize = 2;
         Map<String, Boolean> parameters = new HashMap<>();
@@ -0,0 +1,114 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.yandex.practicum.filmorate.model.HistoryEvent;
+import com.yandex.practicum.filmorate.storage.UserStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+@Component
+@Slf4j
+public class HistoryEventWriter {
+    private final UserStorage userStorage;
+    private final int capacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Queue<HistoryEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public HistoryEventWriter(UserStorage userStorage,
+                              @Value("${filmorate.history.queue-capacity:10000}") int capacity,
+                              @Value("${filmorate.history.batch-size:500}") int batchSize,
+                              @Value("${filmorate.history.overflow-policy:caller-runs}") String overflowPolicy) {
+        this.userStorage = userStorage;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    public void write(int userId, String eventType, String operation, int entityId) {
+        HistoryEvent event = new HistoryEvent(0, userId, eventType, operation, entityId, System.currentTimeMillis());
+        while (!tryEnqueue(event)) {
+            switch (overflowPolicy) {
+                case DROP:
+                    dropped.incrementAndGet();
+                    log.warn("Очередь событий переполнена, событие пользователя {} отброшено.", userId);
+                    return;
+                case BLOCK:
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    break;
+                default:
+                    flush();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.history.flush-interval-ms:100}")
+    public synchronized void flush() {
+        List<HistoryEvent> batch = new ArrayList<>(batchSize);
+        HistoryEvent event;
+        while ((event = queue.poll()) != null) {
+            size.decrementAndGet();
+            batch.add(event);
+            if (batch.size() == batchSize) {
+                store(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            store(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (dropped.get() > 0) {
+            log.warn("Отброшено событий из-за переполнения очереди: {}.", dropped.get());
+        }
+    }
+
+    private boolean tryEnqueue(HistoryEvent event) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        queue.offer(event);
+        return true;
+    }
+
+    private void store(List<HistoryEvent> batch) {
+        try {
+            userStorage.addHistoryEvents(batch);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось записать пакет событий, пишем по одному: {}", e.getMessage());
+            for (HistoryEvent event : batch) {
+                try {
+                    userStorage.addHistoryEvents(List.of(event));
+                } catch (DataAccessException ex) {
+                    log.error("Событие пользователя {} не записано: {}", event.getUserId(), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private enum OverflowPolicy {
+        CALLER_RUNS,
+        BLOCK,
+        DROP
+    }
+}
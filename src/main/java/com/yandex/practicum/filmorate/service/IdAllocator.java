@@ -0,0 +1,41 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.yandex.practicum.filmorate.storage.IdSequenceStorage;
+import com.yandex.practicum.filmorate.utils.HiLoIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+@Component
+public class IdAllocator {
+    private static final String FILM_SEQUENCE = "film_id_seq";
+    private static final String USER_SEQUENCE = "user_id_seq";
+
+    private final IdSequenceStorage idSequenceStorage;
+    private final int blockSize;
+    private final HiLoIdGenerator filmIds;
+    private final HiLoIdGenerator userIds;
+
+    public IdAllocator(IdSequenceStorage idSequenceStorage,
+                       @Value("${filmorate.ids.block-size:100}") int blockSize) {
+        this.idSequenceStorage = idSequenceStorage;
+        this.blockSize = blockSize;
+        this.filmIds = new HiLoIdGenerator(() -> idSequenceStorage.nextValue(FILM_SEQUENCE), blockSize);
+        this.userIds = new HiLoIdGenerator(() -> idSequenceStorage.nextValue(USER_SEQUENCE), blockSize);
+    }
+
+    @PostConstruct
+    public void init() {
+        idSequenceStorage.alignWithTable(FILM_SEQUENCE, "film", blockSize);
+        idSequenceStorage.alignWithTable(USER_SEQUENCE, "users", blockSize);
+    }
+
+    public int nextFilmId() {
+        return filmIds.nextId();
+    }
+
+    public int nextUserId() {
+        return userIds.nextId();
+    }
+}
@@ -0,0 +1,221 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yandex.practicum.filmorate.exeption.ValidationException;
+import com.yandex.practicum.filmorate.model.Friendship;
+import com.yandex.practicum.filmorate.model.ImportError;
+import com.yandex.practicum.filmorate.model.IngestResult;
+import com.yandex.practicum.filmorate.model.IngestStats;
+import com.yandex.practicum.filmorate.model.Like;
+import com.yandex.practicum.filmorate.storage.FilmStorage;
+import com.yandex.practicum.filmorate.storage.UserStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class InteractionIngestService {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectMapper objectMapper;
+    private final FilmCache filmCache;
+    private final PopularFilmsLeaderboard popularFilmsLeaderboard;
+    private final UserSimilarityIndex userSimilarityIndex;
+    private final SocialGraphIndex socialGraphIndex;
+    private final HistoryEventWriter historyEventWriter;
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder totalProcessed = new LongAdder();
+    private final LongAdder totalInserted = new LongAdder();
+    private final LongAdder totalDuplicates = new LongAdder();
+    private final LongAdder totalFailed = new LongAdder();
+    @Value("${filmorate.ingest.chunk-size:5000}")
+    private int chunkSize;
+
+    public IngestResult ingestLikes(InputStream body, boolean csv, boolean history) throws IOException {
+        return ingest(body, csv, "filmId", filmStorage::getExistingIds, "Фильм", rows -> {
+            List<Like> added = filmStorage.likeFilms(rows.stream()
+                    .map(row -> new Like(row[0], row[1]))
+                    .collect(Collectors.toList()));
+            filmCache.invalidate(added.stream().map(Like::getFilmId).distinct().collect(Collectors.toList()));
+            added.forEach(like -> {
+                popularFilmsLeaderboard.like(like.getFilmId());
+                userSimilarityIndex.like(like.getUserId(), like.getFilmId());
+                if (history) {
+                    historyEventWriter.write(like.getUserId(), "LIKE", "ADD", like.getFilmId());
+                }
+            });
+            return added.size();
+        });
+    }
+
+    public IngestResult ingestFriendships(InputStream body, boolean csv, boolean history) throws IOException {
+        return ingest(body, csv, "friendId", userStorage::getExistingIds, "Пользователь", rows -> {
+            List<Friendship> added = userStorage.addFriendships(rows.stream()
+                    .map(row -> new Friendship(row[0], row[1]))
+                    .collect(Collectors.toList()));
+            added.forEach(friendship -> {
+                socialGraphIndex.addFriend(friendship.getUserId(), friendship.getFriendId());
+                if (history) {
+                    historyEventWriter.write(friendship.getUserId(), "FRIEND", "ADD", friendship.getFriendId());
+                }
+            });
+            return added.size();
+        });
+    }
+
+    public IngestStats getStats() {
+        return new IngestStats(running.get(), totalProcessed.sum(), totalInserted.sum(), totalDuplicates.sum(), totalFailed.sum());
+    }
+
+    private IngestResult ingest(InputStream body, boolean csv, String targetField,
+                                Function<Collection<Integer>, Set<Integer>> targetsLookup, String targetName,
+                                Function<List<int[]>, Integer> writer) throws IOException {
+        Progress progress = new Progress();
+        running.incrementAndGet();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<int[]> chunk = new ArrayList<>(chunkSize);
+            String line;
+            int index = 0;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !(csv && index == 0 && isCsvHeader(line))) {
+                    progress.processed();
+                    try {
+                        int[] row = csv ? parseCsv(line) : parseJson(line, targetField);
+                        chunk.add(new int[]{row[0], row[1], index});
+                    } catch (ValidationException e) {
+                        progress.error(index, e.getMessage());
+                    }
+                    if (chunk.size() == chunkSize) {
+                        writeChunk(chunk, targetsLookup, targetName, writer, progress);
+                        chunk.clear();
+                    }
+                }
+                index++;
+            }
+            writeChunk(chunk, targetsLookup, targetName, writer, progress);
+        } finally {
+            running.decrementAndGet();
+        }
+        log.info("Загрузка завершена, обработано: {}, добавлено: {}, дубликатов: {}, ошибок: {}.",
+                progress.processed, progress.inserted, progress.duplicates, progress.failed);
+        return new IngestResult(progress.processed, progress.inserted, progress.duplicates, progress.failed,
+                progress.errors);
+    }
+
+    private void writeChunk(List<int[]> chunk, Function<Collection<Integer>, Set<Integer>> targetsLookup,
+                            String targetName, Function<List<int[]>, Integer> writer, Progress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<Integer> users = userStorage.getExistingIds(chunk.stream().map(row -> row[0]).collect(Collectors.toSet()));
+        Set<Integer> targets = targetsLookup.apply(chunk.stream().map(row -> row[1]).collect(Collectors.toSet()));
+        Set<Long> seen = new HashSet<>();
+        List<int[]> rows = new ArrayList<>(chunk.size());
+        for (int[] row : chunk) {
+            if (!users.contains(row[0])) {
+                progress.error(row[2], "Пользователя с id = " + row[0] + " не существует.");
+            } else if (!targets.contains(row[1])) {
+                progress.error(row[2], targetName + " с id = " + row[1] + " не существует.");
+            } else if (!seen.add(((long) row[0] << 32) | (row[1] & 0xFFFFFFFFL))) {
+                progress.duplicate();
+            } else {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            int added = writer.apply(rows);
+            progress.inserted(added);
+            for (int i = added; i < rows.size(); i++) {
+                progress.duplicate();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Не удалось сохранить пачку из {} строк.", rows.size(), e);
+            rows.forEach(row -> progress.error(row[2], "Не удалось сохранить строку: "
+                    + e.getMostSpecificCause().getMessage()));
+        }
+        log.info("Загрузка: обработано {}, добавлено {}.", progress.processed, progress.inserted);
+    }
+
+    private int[] parseJson(String line, String targetField) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            JsonNode userId = node.get("userId");
+            JsonNode targetId = node.get(targetField);
+            if (userId == null || !userId.canConvertToInt() || targetId == null || !targetId.canConvertToInt()) {
+                throw new ValidationException("Ожидались поля userId и " + targetField + ".");
+            }
+            return new int[]{userId.intValue(), targetId.intValue()};
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private int[] parseCsv(String line) {
+        String[] values = line.split(",");
+        if (values.length != 2) {
+            throw new ValidationException("Ожидались два значения через запятую.");
+        }
+        try {
+            return new int[]{Integer.parseInt(values[0].trim()), Integer.parseInt(values[1].trim())};
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный идентификатор: " + line);
+        }
+    }
+
+    private boolean isCsvHeader(String line) {
+        return !Character.isDigit(line.trim().charAt(0)) && line.trim().charAt(0) != '-';
+    }
+
+    private class Progress {
+        private final List<ImportError> errors = new ArrayList<>();
+        private long processed;
+        private long inserted;
+        private long duplicates;
+        private long failed;
+
+        private void processed() {
+            processed++;
+            totalProcessed.increment();
+        }
+
+        private void inserted(int count) {
+            inserted += count;
+            totalInserted.add(count);
+        }
+
+        private void duplicate() {
+            duplicates++;
+            totalDuplicates.increment();
+        }
+
+        private void error(int index, String message) {
+            failed++;
+            totalFailed.increment();
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportError(index, message));
+            }
+        }
+    }
+}
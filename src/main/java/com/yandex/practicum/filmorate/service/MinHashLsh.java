@@ -0,0 +1,108 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.yandex.practicum.filmorate.utils.CompactIntSet;
+
+import java.util.*;
+
+class MinHashLsh {
+    private static final long PRIME = (1L << 31) - 1;
+
+    private final int bands;
+    private final int rows;
+    private final long[] a;
+    private final long[] b;
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    private final List<Map<Integer, Set<Integer>>> buckets = new ArrayList<>();
+
+    MinHashLsh(int bands, int rows, long seed) {
+        this.bands = bands;
+        this.rows = rows;
+        this.a = new long[bands * rows];
+        this.b = new long[bands * rows];
+        Random random = new Random(seed);
+        for (int i = 0; i < a.length; i++) {
+            a[i] = 1 + random.nextInt((int) PRIME - 1);
+            b[i] = random.nextInt((int) PRIME);
+        }
+        for (int band = 0; band < bands; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    void update(int userId, CompactIntSet films) {
+        remove(userId);
+        if (films == null || films.isEmpty()) {
+            return;
+        }
+        int[] signature = new int[a.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        films.forEachInt(filmId -> addToSignature(signature, filmId));
+        put(userId, signature);
+    }
+
+    void add(int userId, int filmId) {
+        int[] old = signatures.get(userId);
+        int[] signature = old == null ? new int[a.length] : old.clone();
+        if (old == null) {
+            Arrays.fill(signature, Integer.MAX_VALUE);
+        }
+        addToSignature(signature, filmId);
+        if (!Arrays.equals(old, signature)) {
+            remove(userId);
+            put(userId, signature);
+        }
+    }
+
+    void remove(int userId) {
+        int[] signature = signatures.remove(userId);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            Map<Integer, Set<Integer>> bandBuckets = buckets.get(band);
+            int key = bandKey(signature, band);
+            Set<Integer> users = bandBuckets.get(key);
+            if (users != null && users.remove(userId) && users.isEmpty()) {
+                bandBuckets.remove(key);
+            }
+        }
+    }
+
+    Set<Integer> candidates(int userId) {
+        int[] signature = signatures.get(userId);
+        if (signature == null) {
+            return Collections.emptySet();
+        }
+        Set<Integer> candidates = new HashSet<>();
+        for (int band = 0; band < bands; band++) {
+            candidates.addAll(buckets.get(band).getOrDefault(bandKey(signature, band), Collections.emptySet()));
+        }
+        candidates.remove(userId);
+        return candidates;
+    }
+
+    private void put(int userId, int[] signature) {
+        signatures.put(userId, signature);
+        for (int band = 0; band < bands; band++) {
+            buckets.get(band).computeIfAbsent(bandKey(signature, band), key -> new HashSet<>()).add(userId);
+        }
+    }
+
+    private void addToSignature(int[] signature, int filmId) {
+        long x = Math.floorMod(filmId, PRIME);
+        for (int i = 0; i < signature.length; i++) {
+            int hash = (int) ((a[i] * x + b[i]) % PRIME);
+            if (hash < signature[i]) {
+                signature[i] = hash;
+            }
+        }
+    }
+
+    private int bandKey(int[] signature, int band) {
+        int key = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = 31 * key + signature[i];
+        }
+        return key;
+    }
+}
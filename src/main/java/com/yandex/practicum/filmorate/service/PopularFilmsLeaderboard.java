@@ -0,0 +1,198 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.FilmRank;
+import com.yandex.practicum.filmorate.model.Genre;
+import com.yandex.practicum.filmorate.storage.FilmStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PopularFilmsLeaderboard {
+    private static final Comparator<Entry> BY_POPULARITY = Comparator
+            .comparingInt((Entry entry) -> entry.likes).reversed()
+            .thenComparingInt(entry -> entry.filmId);
+
+    private final FilmStorage filmStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> films = new TreeSet<>(BY_POPULARITY);
+    private final Map<Integer, NavigableSet<Entry>> filmsByGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> filmsByYear = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        lock.writeLock().lock();
+        try {
+            filmStorage.streamFilmRanks(rank -> put(makeEntry(rank)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Рейтинг популярных фильмов построен, фильмов: {}.", entries.size());
+    }
+
+    public void addFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            remove(film.getId());
+            put(makeEntry(film, film.getLikes().size()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            Entry old = remove(film.getId());
+            put(makeEntry(film, old == null ? film.getLikes().size() : old.likes));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void reload(List<FilmRank> ranks) {
+        lock.writeLock().lock();
+        try {
+            ranks.forEach(rank -> {
+                remove(rank.getFilmId());
+                put(makeEntry(rank));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            remove(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void like(int filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void unlike(int filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public List<Integer> getTopFilmIds(Integer count, Integer genreId, Integer year) {
+        int limit = count == null ? Integer.MAX_VALUE : count;
+        lock.readLock().lock();
+        try {
+            if (genreId == null && year == null) {
+                return top(films, limit, entry -> true);
+            } else if (genreId == null) {
+                return top(filmsByYear.get(year), limit, entry -> true);
+            } else if (year == null) {
+                return top(filmsByGenre.get(genreId), limit, entry -> true);
+            }
+            NavigableSet<Entry> byGenre = filmsByGenre.get(genreId);
+            NavigableSet<Entry> byYear = filmsByYear.get(year);
+            if (byGenre == null || byYear == null) {
+                return Collections.emptyList();
+            }
+            return byGenre.size() <= byYear.size()
+                    ? top(byGenre, limit, entry -> entry.year == year)
+                    : top(byYear, limit, entry -> entry.hasGenre(genreId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Integer> top(NavigableSet<Entry> source, int limit, Predicate<Entry> filter) {
+        if (source == null) {
+            return Collections.emptyList();
+        }
+        List<Integer> result = new ArrayList<>(Math.min(limit, source.size()));
+        for (Entry entry : source) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (filter.test(entry)) {
+                result.add(entry.filmId);
+            }
+        }
+        return result;
+    }
+
+    private void changeLikes(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry old = remove(filmId);
+            if (old != null) {
+                put(new Entry(filmId, Math.max(0, old.likes + delta), old.year, old.genreIds));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.filmId, entry);
+        films.add(entry);
+        filmsByYear.computeIfAbsent(entry.year, year -> new TreeSet<>(BY_POPULARITY)).add(entry);
+        for (int genreId : entry.genreIds) {
+            filmsByGenre.computeIfAbsent(genreId, id -> new TreeSet<>(BY_POPULARITY)).add(entry);
+        }
+    }
+
+    private Entry remove(int filmId) {
+        Entry entry = entries.remove(filmId);
+        if (entry == null) {
+            return null;
+        }
+        films.remove(entry);
+        filmsByYear.get(entry.year).remove(entry);
+        for (int genreId : entry.genreIds) {
+            filmsByGenre.get(genreId).remove(entry);
+        }
+        return entry;
+    }
+
+    private Entry makeEntry(Film film, int likes) {
+        int[] genreIds = film.getGenres().stream()
+                .map(Genre::getId)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .distinct()
+                .sorted()
+                .toArray();
+        return new Entry(film.getId(), likes, film.getReleaseDate().getYear(), genreIds);
+    }
+
+    private Entry makeEntry(FilmRank rank) {
+        return new Entry(rank.getFilmId(), rank.getLikes(), rank.getReleaseDate().getYear(), rank.getGenreIds());
+    }
+
+    private static class Entry {
+        private final int filmId;
+        private final int likes;
+        private final int year;
+        private final int[] genreIds;
+
+        private Entry(int filmId, int likes, int year, int[] genreIds) {
+            this.filmId = filmId;
+            this.likes = likes;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+
+        private boolean hasGenre(int genreId) {
+            return Arrays.binarySearch(genreIds, genreId) >= 0;
+        }
+    }
+}
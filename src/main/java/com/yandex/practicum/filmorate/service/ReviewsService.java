@@ -2,44 +2,49 @@ package com.yandex.practicum.filmorate.service;
 
 import com.yandex.practicum.filmorate.exeption.NotFoundException;
 import com.yandex.practicum.filmorate.exeption.ValidationException;
+import com.yandex.practicum.filmorate.model.Page;
 import com.yandex.practicum.filmorate.model.Review;
 import com.yandex.practicum.filmorate.storage.FilmStorage;
 import com.yandex.practicum.filmorate.storage.ReviewsStorage;
 import com.yandex.practicum.filmorate.storage.UserStorage;
+import com.yandex.practicum.filmorate.utils.Pagination;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class ReviewsService {
     private static final int DEFAULT_COUNT_REVIEWS = 10;
     private final ReviewsStorage reviewsStorage;
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final HistoryEventWriter historyEventWriter;
 
     public Review createReview(Review review) {
         validationReview(review);
-        userStorage.getUserById(review.getUserId()).orElseThrow(() -> {
+        if (!userStorage.existsById(review.getUserId())) {
             throw new NotFoundException("Пользователя с id = " + review.getUserId() + " не существует.");
-        });
-
-        filmStorage.getFilmById(review.getFilmId()).orElseThrow(() -> {
+        }
+        if (!filmStorage.existsById(review.getFilmId())) {
             throw new NotFoundException("Фильм с id = " + review.getFilmId() + " не существует.");
-        });
+        }
 
         Review reviewReturned = reviewsStorage.createReview(review);
-        userStorage.addHistoryEvent(review.getUserId(), "REVIEW", "ADD", reviewReturned.getReviewId());
+        historyEventWriter.write(review.getUserId(), "REVIEW", "ADD", reviewReturned.getReviewId());
         return reviewReturned;
     }
 
     public Review updateReview(Review review) {
         validationReview(review);
         Review reviewReturned = reviewsStorage.updateReview(review);
-        userStorage.addHistoryEvent(reviewReturned.getUserId(), "REVIEW", "UPDATE", reviewReturned.getReviewId());
+        historyEventWriter.write(reviewReturned.getUserId(), "REVIEW", "UPDATE", reviewReturned.getReviewId());
         return reviewReturned;
     }
 
@@ -52,22 +57,18 @@ public class ReviewsService {
     public Review delete(int id) {
         Optional<Review> reviewReturned = reviewsStorage.getReviewById(id);
         reviewsStorage.deleteReviewById(id);
-        userStorage.addHistoryEvent(reviewReturned.get().getUserId(), "REVIEW", "REMOVE", reviewReturned.get().getReviewId());
+        historyEventWriter.write(reviewReturned.get().getUserId(), "REVIEW", "REMOVE", reviewReturned.get().getReviewId());
         return reviewReturned.get();
     }
 
-    public List<Review> getReviewsByFilm(String filmIdStr, String countStr) {
-        int count = DEFAULT_COUNT_REVIEWS;
-        if (countStr != null) {
-            count = Integer.parseInt(countStr);
-        }
-
-        if (filmIdStr == null) {
-            return reviewsStorage.getReviewsWithoutFilm(count);
-        } else {
-            int filmId = Integer.parseInt(filmIdStr);
-            return reviewsStorage.getReviewsByFilm(filmId, count);
-        }
+    public Page<Review> getReviewsByFilm(String filmIdStr, String countStr, String after) {
+        int count = Pagination.limit(countStr == null ? DEFAULT_COUNT_REVIEWS : Integer.parseInt(countStr));
+        Integer filmId = filmIdStr == null ? null : Integer.parseInt(filmIdStr);
+        long[] cursor = Pagination.decode(after, 2);
+        List<Review> reviews = cursor == null
+                ? reviewsStorage.getReviews(filmId, null, null, count + 1)
+                : reviewsStorage.getReviews(filmId, (int) cursor[0], (int) cursor[1], count + 1);
+        return Pagination.page(reviews, count, review -> new long[]{review.getUseful(), review.getReviewId()});
     }
 
     public void userLikeReview(int id, int userId, boolean added) {
@@ -79,6 +80,14 @@ public class ReviewsService {
 
     }
 
+    @Scheduled(cron = "${filmorate.reviews.useful-repair-cron:-}")
+    public void rebuildUseful() {
+        int repaired = reviewsStorage.rebuildUseful();
+        if (repaired > 0) {
+            log.warn("Полезность пересчитана для {} отзывов.", repaired);
+        }
+    }
+
     private void validationReview(Review review) {
         if (StringUtils.isBlank(review.getContent())) {
             throw new ValidationException("Тело отзыва пустое.");
@@ -0,0 +1,187 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.yandex.practicum.filmorate.model.Friendship;
+import com.yandex.practicum.filmorate.storage.UserStorage;
+import com.yandex.practicum.filmorate.utils.CompactIntSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SocialGraphIndex {
+    private static final int MIN_COMPACTION_DELTA = 1024;
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final UserStorage userStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, CompactIntSet> added = new HashMap<>();
+    private final Map<Integer, CompactIntSet> removed = new HashMap<>();
+    private final CompactIntSet removedUsers = new CompactIntSet();
+    private int[] offsets = {0};
+    private int[] targets = new int[0];
+    private int deltaSize;
+
+    @PostConstruct
+    public void init() {
+        List<Friendship> friendships = userStorage.getAllFriendships();
+        lock.writeLock().lock();
+        try {
+            build(friendships.stream()
+                    .mapToLong(friendship -> edge(friendship.getUserId(), friendship.getFriendId()))
+                    .toArray());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Граф друзей построен, пользователей: {}, связей: {}.", offsets.length - 1, targets.length);
+    }
+
+    public void addFriend(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            CompactIntSet removedFriends = removed.get(userId);
+            if (removedFriends != null && removedFriends.removeInt(friendId)) {
+                deltaSize--;
+            } else if (!baseContains(userId, friendId)
+                    && added.computeIfAbsent(userId, id -> new CompactIntSet()).addInt(friendId)) {
+                deltaSize++;
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            CompactIntSet addedFriends = added.get(userId);
+            if (addedFriends != null && addedFriends.removeInt(friendId)) {
+                deltaSize--;
+            } else if (baseContains(userId, friendId)
+                    && removed.computeIfAbsent(userId, id -> new CompactIntSet()).addInt(friendId)) {
+                deltaSize++;
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            added.remove(userId);
+            removed.remove(userId);
+            if (removedUsers.addInt(userId)) {
+                deltaSize++;
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<int[]> suggest(int userId, int count) {
+        lock.readLock().lock();
+        try {
+            CompactIntSet friends = new CompactIntSet();
+            forEachFriend(userId, friends::addInt);
+            IntStream friendIds = Arrays.stream(friends.toIntArray());
+            if (friends.size() >= PARALLEL_THRESHOLD) {
+                friendIds = friendIds.parallel();
+            }
+            Map<Integer, Integer> mutual = friendIds.collect(HashMap::new,
+                    (counts, friendId) -> forEachFriend(friendId, candidate -> {
+                        if (candidate != userId && !friends.containsInt(candidate)) {
+                            counts.merge(candidate, 1, Integer::sum);
+                        }
+                    }),
+                    (left, right) -> right.forEach((id, mutualCount) -> left.merge(id, mutualCount, Integer::sum)));
+            return mutual.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(count)
+                    .map(entry -> new int[]{entry.getKey(), entry.getValue()})
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void forEachFriend(int userId, IntConsumer action) {
+        if (removedUsers.containsInt(userId)) {
+            return;
+        }
+        CompactIntSet removedFriends = removed.get(userId);
+        if (userId >= 0 && userId + 1 < offsets.length) {
+            for (int i = offsets[userId]; i < offsets[userId + 1]; i++) {
+                int friendId = targets[i];
+                if ((removedFriends == null || !removedFriends.containsInt(friendId))
+                        && !removedUsers.containsInt(friendId)) {
+                    action.accept(friendId);
+                }
+            }
+        }
+        CompactIntSet addedFriends = added.get(userId);
+        if (addedFriends != null) {
+            addedFriends.forEachInt(friendId -> {
+                if (!removedUsers.containsInt(friendId)) {
+                    action.accept(friendId);
+                }
+            });
+        }
+    }
+
+    private boolean baseContains(int userId, int friendId) {
+        return userId >= 0 && userId + 1 < offsets.length
+                && Arrays.binarySearch(targets, offsets[userId], offsets[userId + 1], friendId) >= 0;
+    }
+
+    private void compactIfNeeded() {
+        if (deltaSize < Math.max(MIN_COMPACTION_DELTA, targets.length / 8)) {
+            return;
+        }
+        LongStream.Builder edges = LongStream.builder();
+        CompactIntSet users = CompactIntSet.of(added.keySet().stream().mapToInt(Integer::intValue).toArray());
+        for (int userId = 0; userId + 1 < offsets.length; userId++) {
+            users.addInt(userId);
+        }
+        users.forEachInt(userId -> forEachFriend(userId, friendId -> edges.add(edge(userId, friendId))));
+        build(edges.build().toArray());
+    }
+
+    private void build(long[] edges) {
+        Arrays.sort(edges);
+        int maxId = edges.length == 0 ? -1 : (int) (edges[edges.length - 1] >>> 32);
+        int[] newOffsets = new int[maxId + 2];
+        int[] newTargets = new int[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            newOffsets[(int) (edges[i] >>> 32) + 1]++;
+            newTargets[i] = (int) edges[i];
+        }
+        for (int i = 1; i < newOffsets.length; i++) {
+            newOffsets[i] += newOffsets[i - 1];
+        }
+        offsets = newOffsets;
+        targets = newTargets;
+        added.clear();
+        removed.clear();
+        removedUsers.clear();
+        deltaSize = 0;
+    }
+
+    private static long edge(int userId, int friendId) {
+        return ((long) userId << 32) | (friendId & 0xffffffffL);
+    }
+}
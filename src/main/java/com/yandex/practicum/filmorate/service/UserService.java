@@ -3,17 +3,20 @@ package com.yandex.practicum.filmorate.service;
 import com.yandex.practicum.filmorate.exeption.NotFoundException;
 import com.yandex.practicum.filmorate.exeption.ValidationException;
 import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.FriendSuggestion;
 import com.yandex.practicum.filmorate.model.HistoryEvent;
+import com.yandex.practicum.filmorate.model.Page;
 import com.yandex.practicum.filmorate.model.User;
 import com.yandex.practicum.filmorate.storage.FilmStorage;
 import com.yandex.practicum.filmorate.storage.UserStorage;
+import com.yandex.practicum.filmorate.utils.Pagination;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,16 +24,21 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserService {
     private final UserStorage userStorage;
+    private final HistoryEventWriter historyEventWriter;
     private final FilmStorage filmStorage;
-    private final FilmService filmService;
-    private int idGenerator = 0;
+    private final PopularFilmsLeaderboard popularFilmsLeaderboard;
+    private final FilmCache filmCache;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final UserSimilarityIndex userSimilarityIndex;
+    private final SocialGraphIndex socialGraphIndex;
+    private final IdAllocator idAllocator;
 
     public User createUser(User user) {
         if (user == null) {
             throw new ValidationException("Пользователь не может быть создан.");
         }
         validationUser(user);
-        user.setId(generatedId());
+        user.setId(idAllocator.nextUserId());
         return userStorage.createUser(user);
     }
 
@@ -38,7 +46,7 @@ public class UserService {
         if (user == null) {
             throw new ValidationException("Пользователь не может быть обновлен.");
         }
-        if (userStorage.getUserById(user.getId()).isEmpty()) {
+        if (!userStorage.existsById(user.getId())) {
             log.warn("Пользователь с id {} не существует.", user.getId());
             throw new NotFoundException("Пользователь не существует.");
         }
@@ -52,72 +60,115 @@ public class UserService {
         });
     }
 
-    public List<User> getUsers() {
-        return userStorage.getUsers();
+    public StreamingResponseBody streamUsers() {
+        return jsonArrayStreamer.stream(userStorage::streamUsers);
+    }
+
+    public Page<User> getUsers(Integer limit, String after) {
+        if (limit == null && after == null) {
+            return new Page<>(userStorage.getUsers(), null);
+        }
+        int pageSize = Pagination.limit(limit);
+        long[] cursor = Pagination.decode(after, 1);
+        List<User> users = userStorage.getUsersPage(cursor == null ? 0 : (int) cursor[0], pageSize + 1);
+        return Pagination.page(users, pageSize, user -> new long[]{user.getId()});
     }
 
     public void addToFriends(int targetUserId, int friendId) {
         User targetUser = getUserById(targetUserId);
         User friend = getUserById(friendId);
         userStorage.addToFriend(targetUser, friend);
-        userStorage.addHistoryEvent(targetUserId, "FRIEND", "ADD", friendId);
+        socialGraphIndex.addFriend(targetUserId, friendId);
+        historyEventWriter.write(targetUserId, "FRIEND", "ADD", friendId);
     }
 
     public void removeFromFriends(int targetUserId, int friendId) {
         User targetUser = getUserById(targetUserId);
         User friend = getUserById(friendId);
         userStorage.removeFromFriend(targetUser, friend);
-        userStorage.addHistoryEvent(targetUserId, "FRIEND", "REMOVE", friendId);
+        socialGraphIndex.removeFriend(targetUserId, friendId);
+        historyEventWriter.write(targetUserId, "FRIEND", "REMOVE", friendId);
     }
 
-    public List<User> getFriendsByUserId(int userId) {
+    public Page<User> getFriendsByUserId(int userId, Integer limit, String after) {
         User user = getUserById(userId);
-        return user.getFriends().stream()
-                .map(userStorage::getUserById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+        if (limit == null && after == null) {
+            return new Page<>(userStorage.getFriends(user.getId(), 0, null), null);
+        }
+        int pageSize = Pagination.limit(limit);
+        long[] cursor = Pagination.decode(after, 1);
+        List<User> friends = userStorage.getFriends(user.getId(), cursor == null ? 0 : (int) cursor[0],
+                pageSize + 1);
+        return Pagination.page(friends, pageSize, friend -> new long[]{friend.getId()});
     }
 
-    public List<User> getCommonFriends(int targetUserId, int otherUserId) {
+    public Page<User> getCommonFriends(int targetUserId, int otherUserId, Integer limit, String after) {
         User targetUser = getUserById(targetUserId);
         User otherUser = getUserById(otherUserId);
-        return targetUser.getFriends().stream().filter(id -> otherUser.getFriends().contains(id))
-                .map(userStorage::getUserById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
+        int[] common = targetUser.getFriends().intersect(otherUser.getFriends()).toIntArray();
+        if (limit == null && after == null) {
+            return new Page<>(userStorage.getUsersByIds(Arrays.stream(common).boxed()
+                    .collect(Collectors.toList())), null);
+        }
+        int pageSize = Pagination.limit(limit);
+        long[] cursor = Pagination.decode(after, 1);
+        int from = 0;
+        if (cursor != null) {
+            int index = Arrays.binarySearch(common, (int) cursor[0]);
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        int to = (int) Math.min(common.length, (long) from + pageSize + 1);
+        List<User> friends = userStorage.getUsersByIds(Arrays.stream(common, from, to).boxed()
+                .collect(Collectors.toList()));
+        return Pagination.page(friends, pageSize, friend -> new long[]{friend.getId()});
+    }
+
+    public List<FriendSuggestion> getFriendSuggestions(int userId, int count) {
+        User user = getUserById(userId);
+        if (count <= 0) {
+            throw new ValidationException("Количество рекомендаций должно быть больше нуля.");
+        }
+        List<int[]> ranked = socialGraphIndex.suggest(user.getId(), count);
+        Map<Integer, User> users = userStorage.getUsersByIds(ranked.stream()
+                        .map(candidate -> candidate[0])
+                        .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, candidate -> candidate));
+        return ranked.stream()
+                .filter(candidate -> users.containsKey(candidate[0]))
+                .map(candidate -> new FriendSuggestion(users.get(candidate[0]), candidate[1]))
                 .collect(Collectors.toList());
     }
 
-    public List<HistoryEvent> getFeedsByUserId(int id) {
+    public Page<HistoryEvent> getFeedsByUserId(int id, Integer limit, String after) {
         User user = getUserById(id);
-        return userStorage.getFeedsByUserId(user.getId());
+        historyEventWriter.flush();
+        if (limit == null && after == null) {
+            return new Page<>(userStorage.getFeedsByUserId(user.getId()), null);
+        }
+        int pageSize = Pagination.limit(limit);
+        long[] cursor = Pagination.decode(after, 1);
+        List<HistoryEvent> events = userStorage.getFeedsPage(user.getId(), cursor == null ? 0 : (int) cursor[0],
+                pageSize + 1);
+        return Pagination.page(events, pageSize, event -> new long[]{event.getEventId()});
     }
 
     public void deleteUserById(int userId) {
-        userStorage.getUserById(userId).orElseThrow(() -> {
+        if (!userStorage.existsById(userId)) {
             throw new NotFoundException("Пользователя с id = " + userId + " не существует.");
-        });
+        }
+        List<Integer> likedFilms = filmStorage.getFilmsIdByUserLikes(userId);
+        historyEventWriter.flush();
         userStorage.deleteUserById(userId);
+        filmCache.invalidate(likedFilms);
+        likedFilms.forEach(popularFilmsLeaderboard::unlike);
+        userSimilarityIndex.removeUser(userId);
+        socialGraphIndex.removeUser(userId);
     }
 
     public Set<Film> getRecommendationByUserId(int userId) {
-        Map<Integer, Set<Integer>> data = initializeData();
-        Map<Integer, Integer> similarMap = getSimilarMap(userId, data);
-        Set<Integer> userFilmSet = data.get(userId);
-        Set<Film> recommendationSet = new HashSet<>();
-        AtomicLong count = new AtomicLong(0);
-        similarMap.keySet()
-                .forEach(u -> {
-                    if (similarMap.get(u) >= count.get()) {
-                        data.get(u).stream()
-                                .filter(f -> !userFilmSet.contains(f))
-                                .map(filmService::getFilmById)
-                                .forEach(recommendationSet::add);
-                        count.set(similarMap.get(u));
-                    }
-                });
-        return recommendationSet;
+        User user = getUserById(userId);
+        return new LinkedHashSet<>(filmStorage.getFilmsByIds(userSimilarityIndex.recommendFilmIds(user.getId())));
     }
 
     private void validationUser(User user) {
@@ -149,33 +200,4 @@ public class UserService {
             user.setName(user.getLogin());
         }
     }
-
-    private int generatedId() {
-        return ++idGenerator;
-    }
-
-    private Map<Integer, Integer> getSimilarMap(int userId, Map<Integer, Set<Integer>> data) {
-        Map<Integer, Integer> similarLikesMap = new HashMap<>();
-        Set<Integer> userLikesSet = data.get(userId);
-        data.keySet().stream()
-                .filter(user -> !similarLikesMap.containsKey(user) && user != userId).forEach(user -> {
-                    Integer similar = (int) data.get(user).stream()
-                            .filter(userLikesSet::contains)
-                            .count();
-                    similarLikesMap.put(user, similar);
-                });
-
-        return similarLikesMap;
-    }
-
-    private Map<Integer, Set<Integer>> initializeData() {
-        Map<Integer, Set<Integer>> data = new HashMap<>();
-            filmStorage.getAllLikes().forEach(like -> {
-                if (!data.containsKey(like.getUserId())) {
-                    data.put(like.getUserId(), new HashSet<>());
-                }
-                data.get(like.getUserId()).add(like.getFilmId());
-            });
-        return data;
-    }
 }
@@ -0,0 +1,237 @@
+package com.yandex.practicum.filmorate.service;
+
+import com.yandex.practicum.filmorate.model.Like;
+import com.yandex.practicum.filmorate.model.RecommendationStats;
+import com.yandex.practicum.filmorate.storage.FilmStorage;
+import com.yandex.practicum.filmorate.utils.CompactIntSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class UserSimilarityIndex {
+    private static final int PARALLEL_THRESHOLD = 1024;
+    private static final String EXACT = "exact";
+    private static final String APPROXIMATE = "approximate";
+
+    private final FilmStorage filmStorage;
+    private final String mode;
+    private final double recallSampleRate;
+    private final MinHashLsh lsh;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, CompactIntSet> likesByUser = new HashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder recallSamples = new LongAdder();
+    private final DoubleAdder recallSum = new DoubleAdder();
+
+    public UserSimilarityIndex(FilmStorage filmStorage,
+                               @Value("${filmorate.recommendations.mode:exact}") String mode,
+                               @Value("${filmorate.recommendations.lsh.bands:20}") int bands,
+                               @Value("${filmorate.recommendations.lsh.rows:4}") int rows,
+                               @Value("${filmorate.recommendations.recall-sample-rate:0.01}") double recallSampleRate) {
+        if (!EXACT.equals(mode) && !APPROXIMATE.equals(mode)) {
+            throw new IllegalStateException("Неизвестный режим рекомендаций: " + mode);
+        }
+        this.filmStorage = filmStorage;
+        this.mode = mode;
+        this.recallSampleRate = recallSampleRate;
+        this.lsh = APPROXIMATE.equals(mode) ? new MinHashLsh(bands, rows, 42) : null;
+    }
+
+    @PostConstruct
+    public void init() {
+        List<Like> likes = filmStorage.getAllLikes();
+        lock.writeLock().lock();
+        try {
+            likes.forEach(like -> likesByUser.computeIfAbsent(like.getUserId(), id -> new CompactIntSet())
+                    .addInt(like.getFilmId()));
+            if (lsh != null) {
+                likesByUser.forEach(lsh::update);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс рекомендаций построен, режим: {}, пользователей: {}, лайков: {}.",
+                mode, likesByUser.size(), likes.size());
+    }
+
+    public void like(int userId, int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (likesByUser.computeIfAbsent(userId, id -> new CompactIntSet()).addInt(filmId) && lsh != null) {
+                lsh.add(userId, filmId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void unlike(int userId, int filmId) {
+        lock.writeLock().lock();
+        try {
+            CompactIntSet films = likesByUser.get(userId);
+            if (films != null && films.removeInt(filmId)) {
+                if (films.isEmpty()) {
+                    likesByUser.remove(userId);
+                }
+                if (lsh != null) {
+                    lsh.update(userId, films);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            likesByUser.remove(userId);
+            if (lsh != null) {
+                lsh.remove(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            likesByUser.forEach((userId, films) -> {
+                if (films.removeInt(filmId) && lsh != null) {
+                    lsh.update(userId, films);
+                }
+            });
+            likesByUser.values().removeIf(CompactIntSet::isEmpty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int countLikes(int userId) {
+        lock.readLock().lock();
+        try {
+            CompactIntSet films = likesByUser.get(userId);
+            return films == null ? 0 : films.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> getCommonFilmIds(int userId, int otherUserId) {
+        lock.readLock().lock();
+        try {
+            CompactIntSet films = likesByUser.get(userId);
+            CompactIntSet otherFilms = likesByUser.get(otherUserId);
+            if (films == null || otherFilms == null) {
+                return Collections.emptyList();
+            }
+            return Arrays.stream(films.intersect(otherFilms).toIntArray()).boxed().collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> recommendFilmIds(int userId) {
+        lock.readLock().lock();
+        try {
+            CompactIntSet userFilms = likesByUser.get(userId);
+            if (userFilms == null) {
+                return Collections.emptyList();
+            }
+            requests.increment();
+            if (lsh == null) {
+                candidates.add(likesByUser.size() - 1);
+                return recommend(userId, userFilms, likesByUser.keySet());
+            }
+            Set<Integer> neighbours = lsh.candidates(userId);
+            candidates.add(neighbours.size());
+            List<Integer> recommended = recommend(userId, userFilms, neighbours);
+            if (ThreadLocalRandom.current().nextDouble() < recallSampleRate) {
+                sampleRecall(recommended, recommend(userId, userFilms, likesByUser.keySet()));
+            }
+            return recommended;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public RecommendationStats getStats() {
+        long requestCount = requests.sum();
+        long samples = recallSamples.sum();
+        return new RecommendationStats(mode,
+                requestCount,
+                requestCount == 0 ? 0 : (double) candidates.sum() / requestCount,
+                samples,
+                samples == 0 ? 1 : recallSum.sum() / samples);
+    }
+
+    private List<Integer> recommend(int userId, CompactIntSet userFilms, Collection<Integer> users) {
+        Stream<Integer> others = users.stream();
+        if (users.size() >= PARALLEL_THRESHOLD) {
+            others = others.parallel();
+        }
+        Candidates best = others
+                .filter(id -> id != userId)
+                .map(likesByUser::get)
+                .filter(Objects::nonNull)
+                .collect(Candidates::new,
+                        (result, films) -> result.add(films.intersectionSize(userFilms), films),
+                        Candidates::addAll);
+        CompactIntSet recommended = new CompactIntSet();
+        best.films.forEach(films -> films.forEachInt(filmId -> {
+            if (!userFilms.containsInt(filmId)) {
+                recommended.addInt(filmId);
+            }
+        }));
+        return Arrays.stream(recommended.toIntArray()).boxed().collect(Collectors.toList());
+    }
+
+    private void sampleRecall(List<Integer> approximate, List<Integer> exact) {
+        if (exact.isEmpty()) {
+            return;
+        }
+        Set<Integer> found = new HashSet<>(approximate);
+        long hits = exact.stream().filter(found::contains).count();
+        recallSum.add((double) hits / exact.size());
+        recallSamples.increment();
+    }
+
+    private static class Candidates {
+        private int overlap = 1;
+        private final List<CompactIntSet> films = new ArrayList<>();
+
+        private void add(int overlap, CompactIntSet films) {
+            if (overlap > this.overlap) {
+                this.overlap = overlap;
+                this.films.clear();
+            }
+            if (overlap == this.overlap) {
+                this.films.add(films);
+            }
+        }
+
+        private void addAll(Candidates other) {
+            if (other.overlap > overlap) {
+                overlap = other.overlap;
+                films.clear();
+            }
+            if (other.overlap == overlap) {
+                films.addAll(other.films);
+            }
+        }
+    }
+}
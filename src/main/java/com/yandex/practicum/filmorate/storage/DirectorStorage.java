@@ -2,7 +2,9 @@ package com.yandex.practicum.filmorate.storage;
 
 import com.yandex.practicum.filmorate.model.Director;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface DirectorStorage {
@@ -11,8 +13,14 @@ public interface DirectorStorage {
 
     Director getDirectorById(int id);
 
+    boolean existsById(int id);
+
+    Set<Integer> getExistingIds(Collection<Integer> ids);
+
     Set<Director> getDirectorByFilmId(int id);
 
+    Map<Integer, Set<Director>> getDirectorsByFilmIds(List<Integer> filmIds);
+
     Director addDirector(Director director);
 
     Director updateDirector(Director director);
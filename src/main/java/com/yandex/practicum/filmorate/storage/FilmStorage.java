@@ -1,23 +1,46 @@
 package com.yandex.practicum.filmorate.storage;
 
 import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.FilmRank;
+import com.yandex.practicum.filmorate.model.FilmTitle;
 import com.yandex.practicum.filmorate.model.Like;
+import com.yandex.practicum.filmorate.model.Page;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     List<Film> getFilms();
 
+    List<Film> getFilmsPage(int afterId, int limit);
+
+    void streamFilms(Consumer<Film> consumer);
+
+    void streamFilmRanks(Consumer<FilmRank> consumer);
+
+    List<FilmRank> getFilmRanks(Collection<Integer> ids);
+
+    void streamFilmTitles(Consumer<FilmTitle> consumer);
+
     Film createFilm(Film film);
 
+    void createFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     List<Film> search(String query, Boolean director, Boolean title);
 
     Optional<Film> getFilmById(int filmId);
 
+    boolean existsById(int filmId);
+
+    Set<Integer> getExistingIds(Collection<Integer> ids);
+
+    List<Film> getFilmsByIds(List<Integer> filmIds);
+
     List<Film> getMostPopularFilms(Integer count);
 
     List<Film> getMostPopularFilmsWithGenreAndYear(Integer count, Integer genreId, Integer year);
@@ -26,13 +49,19 @@ public interface FilmStorage {
 
     List<Film> getMostPopularFilmsWithYear(Integer count, Integer year);
 
-    void likeFilm(Film film, int userId);
+    boolean likeFilm(int filmId, int userId);
+
+    boolean unlikeFilm(int filmId, int userId);
+
+    List<Like> likeFilms(List<Like> likes);
+
+    List<Integer> rebuildLikeCounts();
 
-    void unlikeFilm(Film film, int userId);
+    List<Film> getCommonFilms(int userId, int friendId);
 
-    Set<Film> getCommonFilms(int userId, int friendId);
+    List<Integer> getFilmsIdByUserLikes(int userId);
 
-    List<Film> getSortedFilms(int directorId, String sortBy);
+    Page<Film> getSortedFilms(int directorId, String sortBy, long[] after, Integer limit);
 
     void removeFilmById(int filmId);
 
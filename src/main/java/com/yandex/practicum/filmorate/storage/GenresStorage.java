@@ -20,4 +20,6 @@ public interface GenresStorage {
     void addFilmGenres(int filmId, List<Integer> genreIds);
 
     List<Genre> getFilmGenres(int filmId);
+
+    Map<Integer, List<Genre>> getFilmsGenres(List<Integer> filmIds);
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.yandex.practicum.filmorate.storage;
+
+public interface IdSequenceStorage {
+    long nextValue(String sequence);
+
+    void alignWithTable(String sequence, String table, int blockSize);
+}
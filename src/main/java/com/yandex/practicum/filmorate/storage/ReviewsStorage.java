@@ -14,11 +14,11 @@ public interface ReviewsStorage {
 
     void deleteReviewById(int id);
 
-    List<Review> getReviewsByFilm(int filmId, int count);
-
-    List<Review> getReviewsWithoutFilm(int count);
+    List<Review> getReviews(Integer filmId, Integer afterUseful, Integer afterId, int count);
 
     void userLikeReview(int id, int userId, boolean added);
 
     void userDislikeReview(int id, int userId, boolean added);
+
+    int rebuildUseful();
 }
\ No newline at end of file
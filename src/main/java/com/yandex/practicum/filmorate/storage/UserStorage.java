@@ -1,16 +1,32 @@
 package com.yandex.practicum.filmorate.storage;
 
+import com.yandex.practicum.filmorate.model.Friendship;
 import com.yandex.practicum.filmorate.model.HistoryEvent;
 import com.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     List<User> getUsers();
 
+    List<User> getUsersPage(int afterId, int limit);
+
+    void streamUsers(Consumer<User> consumer);
+
     Optional<User> getUserById(int id);
 
+    boolean existsById(int id);
+
+    Set<Integer> getExistingIds(Collection<Integer> ids);
+
+    List<User> getUsersByIds(List<Integer> ids);
+
+    List<User> getFriends(int userId, int afterId, Integer limit);
+
     User createUser(User user);
 
     Optional<User> updateUser(User user);
@@ -19,9 +35,15 @@ public interface UserStorage {
 
     void removeFromFriend(User targetUser, User friend);
 
+    List<Friendship> getAllFriendships();
+
+    List<Friendship> addFriendships(List<Friendship> friendships);
+
     List<HistoryEvent> getFeedsByUserId(int id);
 
-    void addHistoryEvent(int userId, String eventType, String operation, int entityId);
+    List<HistoryEvent> getFeedsPage(int id, int afterEventId, int limit);
+
+    void addHistoryEvents(List<HistoryEvent> events);
 
     void deleteUserById(int id);
 }
\ No newline at end of file
@@ -12,21 +12,18 @@ import org.springframework.stereotype.Component;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 
 @Component("directorStorage")
 @RequiredArgsConstructor
 public class DirectorDbStorage implements DirectorStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataSnapshot referenceDataSnapshot;
 
     @Override
     public List<Director> getDirectors() {
-        String sqlQuery = "SELECT director_id, director_name FROM director";
-        return jdbcTemplate.query(sqlQuery, new DirectorMapper());
+        return referenceDataSnapshot.getDirectors();
     }
 
     @Override
@@ -35,6 +32,27 @@ public class DirectorDbStorage implements DirectorStorage {
         return jdbcTemplate.queryForObject(sqlQuery, new DirectorMapper(), id);
     }
 
+    @Override
+    public boolean existsById(int id) {
+        return referenceDataSnapshot.resolveDirector(id) != null;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> unknown = new ArrayList<>();
+        ids.forEach(id -> {
+            if (referenceDataSnapshot.containsDirector(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        });
+        InClause.query(jdbcTemplate, "SELECT director_id FROM director WHERE director_id IN (%s)", unknown,
+                rs -> existing.add(rs.getInt("director_id")));
+        return existing;
+    }
+
     @Override
     public Set<Director> getDirectorByFilmId(int id) {
         return new HashSet<>(jdbcTemplate.query(String.format("SELECT director.director_id, director.director_name " +
@@ -44,6 +62,19 @@ public class DirectorDbStorage implements DirectorStorage {
                 "ORDER BY director.director_id",id), new DirectorMapperForSort()));
     }
 
+    @Override
+    public Map<Integer, Set<Director>> getDirectorsByFilmIds(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String sqlQuery = "SELECT film_id, director_id FROM directors WHERE film_id IN (%s)";
+        Map<Integer, Set<Director>> directors = new HashMap<>();
+        InClause.query(jdbcTemplate, sqlQuery, filmIds, rs -> directors
+                .computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>())
+                .add(referenceDataSnapshot.resolveDirector(rs.getInt("director_id"))));
+        return directors;
+    }
+
     @Override
     public Director addDirector(Director director) {
         String sqlQuery = "INSERT INTO director (DIRECTOR_NAME) VALUES (?)";
@@ -53,6 +84,7 @@ public class DirectorDbStorage implements DirectorStorage {
             ps.setString(1, director.getName());
             return ps;
         }, keyHolder);
+        referenceDataSnapshot.refresh();
         return getDirectorById(Objects.requireNonNull(keyHolder.getKey()).intValue());
     }
 
@@ -60,6 +92,7 @@ public class DirectorDbStorage implements DirectorStorage {
     public Director updateDirector(Director director) {
         String sqlQuery = "UPDATE director SET director_name=? WHERE director_id=?";
         jdbcTemplate.update(sqlQuery, director.getName(), director.getId());
+        referenceDataSnapshot.refresh();
         return getDirectorById(director.getId());
     }
 
@@ -67,13 +100,14 @@ public class DirectorDbStorage implements DirectorStorage {
     public void deleteDirectorById(int id) {
         String sqlQuery = "DELETE FROM director WHERE director_id=?";
         jdbcTemplate.update(sqlQuery, id);
+        referenceDataSnapshot.refresh();
     }
 
     public void addDirectors(int id, Set<Integer> directorIds) {
-        for (int directorId : directorIds) {
-            jdbcTemplate.update("INSERT INTO DIRECTORS(film_id, director_id) " +
-                    "values ( ?, ? )", id, directorId);
-        }
+        List<Object[]> rows = new ArrayList<>();
+        directorIds.forEach(directorId -> rows.add(new Object[]{id, directorId}));
+        jdbcTemplate.batchUpdate("INSERT INTO DIRECTORS(film_id, director_id) " +
+                "values ( ?, ? )", rows);
     }
 
     public void removeDirectorsById(int id) {
@@ -2,17 +2,27 @@ package com.yandex.practicum.filmorate.storage.dao;
 
 import com.yandex.practicum.filmorate.model.*;
 import com.yandex.practicum.filmorate.storage.FilmStorage;
+import com.yandex.practicum.filmorate.utils.IdBitmap;
+import com.yandex.practicum.filmorate.utils.Pagination;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 import java.time.LocalDate;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component("filmStorage")
@@ -23,13 +33,81 @@ public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbcTemplate;
     private final GenresDbStorage genresDbStorage;
     private final DirectorDbStorage directorDbStorage;
+    private final ReferenceDataSnapshot referenceDataSnapshot;
+    private final IdBitmap knownFilmIds = new IdBitmap();
+    @Value("${filmorate.export.fetch-size:500}")
+    private int fetchSize;
+
+    @PostConstruct
+    public void loadFilmIds() {
+        knownFilmIds.addAll(jdbcTemplate.queryForList("SELECT id FROM film", Integer.class));
+    }
 
     @Override
     public List<Film> getFilms() {
-        String select = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name " +
+        String select = "SELECT f.* FROM film AS f";
+        return fillFilmsDetails(jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs)));
+    }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        String select = "SELECT f.* FROM film AS f WHERE f.id > ? ORDER BY f.id LIMIT ?";
+        return fillFilmsDetails(jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs), afterId, limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamFilms(Consumer<Film> consumer) {
+        List<Film> chunk = new ArrayList<>(fetchSize);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT f.* FROM film AS f ORDER BY f.id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            chunk.add(makeFilm(rs));
+            if (chunk.size() >= fetchSize) {
+                fillFilmsDetails(chunk).forEach(consumer);
+                chunk.clear();
+            }
+        });
+        fillFilmsDetails(chunk).forEach(consumer);
+    }
+
+    @Override
+    public void streamFilmRanks(Consumer<FilmRank> consumer) {
+        String select = "SELECT f.id, f.release_date, f.like_count, fg.genre_id " +
+                "FROM film AS f " +
+                "LEFT JOIN film_genre AS fg ON fg.film_id = f.id " +
+                "ORDER BY f.id, fg.genre_id";
+        streamGrouped(select, new GroupingHandler<>("genre_id", (rs, rowNum) -> makeFilmRank(rs),
+                FilmRank::setGenreIds, consumer));
+    }
+
+    @Override
+    public List<FilmRank> getFilmRanks(Collection<Integer> ids) {
+        String select = "SELECT f.id, f.release_date, f.like_count, fg.genre_id " +
+                "FROM film AS f " +
+                "LEFT JOIN film_genre AS fg ON fg.film_id = f.id " +
+                "WHERE f.id IN (%s) " +
+                "ORDER BY f.id, fg.genre_id";
+        List<FilmRank> ranks = new ArrayList<>();
+        GroupingHandler<FilmRank> handler = new GroupingHandler<>("genre_id", (rs, rowNum) -> makeFilmRank(rs),
+                FilmRank::setGenreIds, ranks::add);
+        InClause.query(jdbcTemplate, select, ids, handler);
+        handler.finish();
+        return ranks;
+    }
+
+    @Override
+    public void streamFilmTitles(Consumer<FilmTitle> consumer) {
+        String select = "SELECT f.id, f.name, d.director_id " +
                 "FROM film AS f " +
-                "INNER JOIN mpa AS m ON f.mpa = m.id";
-        return jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs));
+                "LEFT JOIN directors AS d ON d.film_id = f.id " +
+                "ORDER BY f.id, d.director_id";
+        streamGrouped(select, new GroupingHandler<>("director_id",
+                (rs, rowNum) -> new FilmTitle(rs.getInt("id"), rs.getString("name"), null),
+                FilmTitle::setDirectorIds, consumer));
     }
 
     @Override
@@ -37,6 +115,7 @@ public class FilmDbStorage implements FilmStorage {
         String insert = "INSERT INTO film (id, name, description, release_date, duration, mpa) VALUES ( ?, ?, ?, ?,?,?)";
         jdbcTemplate.update(insert, film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
                 film.getDuration(), film.getMpa().getId());
+        knownFilmIds.add(film.getId());
         if (film.getGenres() != null) {
             List<Integer> genreIds = film.getGenres()
                     .stream()
@@ -54,6 +133,30 @@ public class FilmDbStorage implements FilmStorage {
         return film;
     }
 
+    @Override
+    @Transactional
+    public void createFilms(List<Film> films) {
+        jdbcTemplate.batchUpdate("INSERT INTO film (id, name, description, release_date, duration, mpa) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                films.stream()
+                        .map(film -> new Object[]{film.getId(), film.getName(), film.getDescription(),
+                                film.getReleaseDate(), film.getDuration(), film.getMpa().getId()})
+                        .collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)",
+                films.stream()
+                        .flatMap(film -> film.getGenres().stream()
+                                .map(genre -> new Object[]{film.getId(), genre.getId()}))
+                        .collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate("INSERT INTO directors (film_id, director_id) VALUES (?, ?)",
+                films.stream()
+                        .flatMap(film -> film.getDirectors().stream()
+                                .map(Director::getId)
+                                .distinct()
+                                .map(directorId -> new Object[]{film.getId(), directorId}))
+                        .collect(Collectors.toList()));
+        films.forEach(film -> knownFilmIds.add(film.getId()));
+    }
+
     @Override
     public Film updateFilm(Film film) {
         String update = "UPDATE film SET name = ?, description = ?, release_date = ?, duration = ?, mpa = ?" +
@@ -88,217 +191,253 @@ public class FilmDbStorage implements FilmStorage {
 
         query = "%" + query + "%";
 
-        String select = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name " +
-                "FROM FILM AS f " +
-                "INNER JOIN MPA AS m ON f.mpa = m.id " +
-                "LEFT JOIN DIRECTORS d ON d.FILM_ID = f.ID " +
-                "LEFT JOIN DIRECTOR d2 ON d2.DIRECTOR_ID = d.DIRECTOR_ID " +
-                ((director && title) ? ("WHERE LOWER(f.name) LIKE LOWER(?) OR LOWER(d2.DIRECTOR_NAME) LIKE LOWER(?) ") :
+        String directorMatch = "EXISTS (SELECT 1 FROM directors AS d " +
+                "JOIN director AS d2 ON d2.director_id = d.director_id " +
+                "WHERE d.film_id = f.id AND LOWER(d2.director_name) LIKE LOWER(?)) ";
+        String select = "SELECT f.* " +
+                "FROM film AS f " +
+                ((director && title) ? ("WHERE LOWER(f.name) LIKE LOWER(?) OR " + directorMatch) :
                 (title) ? ("WHERE LOWER(f.name) LIKE LOWER(?) ") :
-                        ("WHERE LOWER(d2.DIRECTOR_NAME) LIKE LOWER(?) ")) +
-                "ORDER BY d.FILM_ID DESC";
+                        ("WHERE " + directorMatch)) +
+                "ORDER BY f.id DESC";
 
         List<Film> films = director && title ?
                 jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs), query, query) :
                 jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs), query);
+        return fillFilmsDetails(films);
+    }
+
+    @Override
+    public Optional<Film> getFilmById(int filmId) {
+        String select = "SELECT f.* FROM film AS f WHERE f.id = ?";
+        List<Film> films = jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs), filmId);
+        return fillFilmsDetails(films).stream().findFirst();
+    }
 
-        films.forEach(film -> {
-            film.getGenres().addAll(genresDbStorage.getFilmGenres(film.getId()));
-            film.getLikes().addAll(getUserLikes(film.getId()));
-            film.getDirectors().addAll(directorDbStorage.getDirectorByFilmId(film.getId()));
+    @Override
+    public boolean existsById(int filmId) {
+        if (knownFilmIds.contains(filmId)) {
+            return true;
+        }
+        boolean exists = !jdbcTemplate.queryForList("SELECT 1 FROM film WHERE id = ?", Integer.class, filmId)
+                .isEmpty();
+        if (exists) {
+            knownFilmIds.add(filmId);
+        }
+        return exists;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> unknown = new ArrayList<>();
+        ids.forEach(id -> {
+            if (knownFilmIds.contains(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
         });
-        return films;
+        InClause.query(jdbcTemplate, "SELECT id FROM film WHERE id IN (%s)", unknown, rs -> {
+            existing.add(rs.getInt("id"));
+            knownFilmIds.add(rs.getInt("id"));
+        });
+        return existing;
     }
 
     @Override
-    public Optional<Film> getFilmById(int filmId) {
-        String select = "SELECT f.*, m.name AS mpa_name " +
-                "FROM film AS f " +
-                "INNER JOIN mpa AS m ON f.mpa = m.id " +
-                "AND f.id = ?";
-        SqlRowSet filmRow = jdbcTemplate.queryForRowSet(select, filmId);
-        if (filmRow.next()) {
-            Film film = new Film();
-            film.setId(filmRow.getInt("id"));
-            film.setName(filmRow.getString("name"));
-            film.setDescription(filmRow.getString("description"));
-            film.setDuration(filmRow.getInt("duration"));
-            film.setReleaseDate(filmRow.getDate("release_date").toLocalDate());
-            film.setMpa(new Mpa(filmRow.getInt("mpa"), filmRow.getString("MPA_NAME")));
-            film.getGenres().addAll(genresDbStorage.getFilmGenres(filmId));
-            film.getLikes().addAll(getUserLikes(filmId));
-            film.getDirectors().addAll(directorDbStorage.getDirectorByFilmId(filmId));
-            return Optional.of(film);
-        } else {
-            return Optional.empty();
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
         }
+        List<Film> found = new ArrayList<>();
+        InClause.query(jdbcTemplate, "SELECT f.* FROM film AS f WHERE f.id IN (%s)", filmIds,
+                rs -> found.add(makeFilm(rs)));
+        Map<Integer, Film> films = fillFilmsDetails(found)
+                .stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
     public List<Film> getMostPopularFilms(Integer count) {
-        String select = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name\n" +
+        String select = "SELECT f.* " +
                 "FROM film AS f " +
-                "INNER JOIN mpa AS m ON f.mpa = m.id\n" +
-                "LEFT OUTER JOIN film_likes AS fl ON f.id = fl.film_id " +
-                "GROUP BY f.id, fl.user_id " +
-                "ORDER BY COUNT(fl.user_id) DESC " +
+                "ORDER BY f.like_count DESC, f.id " +
                 "LIMIT ?";
-
-        List<Film> films = jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs), count);
-        films.forEach(film -> film.getLikes().addAll(getUserLikes(film.getId())));
-        return films;
+        return fillFilmsDetails(jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs), count));
     }
 
     @Override
     public List<Film> getMostPopularFilmsWithGenreAndYear(Integer count, Integer genreId, Integer year) {
-        String select = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name " +
+        String select = "SELECT f.* " +
                 "FROM film AS f " +
-                "INNER JOIN mpa AS m ON f.mpa = m.id " +
-                "LEFT JOIN film_likes AS lk ON f.id = lk.film_id " +
-                "LEFT JOIN film_genre AS fg ON f.id = fg.film_id " +
-                "WHERE f.release_date >= ? AND f.release_date < ? AND fg.genre_id = ? " +
-                "GROUP BY f.id " +
-                "ORDER BY COUNT(lk.film_id) DESC " +
+                "WHERE f.release_date >= ? AND f.release_date < ? " +
+                "AND EXISTS (SELECT 1 FROM film_genre AS fg WHERE fg.film_id = f.id AND fg.genre_id = ?) " +
+                "ORDER BY f.like_count DESC, f.id " +
                 "LIMIT ?";
         List<Film> films = jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs),
                 LocalDate.of(year, 1, 1),
                 LocalDate.of(year, 1, 1).plusYears(1),
                 genreId,
                 count);
-        films.forEach(film -> {
-            film.getGenres().addAll(genresDbStorage.getFilmGenres(film.getId()));
-            film.getLikes().addAll(getUserLikes(film.getId()));
-        });
-        return films;
+        return fillFilmsDetails(films);
     }
 
     @Override
     public List<Film> getMostPopularFilmsWithGenre(Integer count, Integer genreId) {
-        String select = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name " +
+        String select = "SELECT f.* " +
                 "FROM film AS f " +
-                "INNER JOIN mpa AS m ON f.mpa = m.id " +
-                "LEFT JOIN film_likes AS lk ON f.id = lk.film_id " +
-                "LEFT JOIN film_genre AS fg ON f.id = fg.film_id " +
-                "WHERE fg.genre_id = ? " +
-                "GROUP BY f.id " +
-                "ORDER BY COUNT(lk.film_id) DESC " +
+                "WHERE EXISTS (SELECT 1 FROM film_genre AS fg WHERE fg.film_id = f.id AND fg.genre_id = ?) " +
+                "ORDER BY f.like_count DESC, f.id " +
                 "LIMIT ?";
         List<Film> films = jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs), genreId,
                 count);
-        films.forEach(film -> {
-            film.getGenres().addAll(genresDbStorage.getFilmGenres(film.getId()));
-            film.getLikes().addAll(getUserLikes(film.getId()));
-        });
-        return films;
+        return fillFilmsDetails(films);
     }
 
     @Override
     public List<Film> getMostPopularFilmsWithYear(Integer count, Integer year) {
-        String select = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name " +
+        String select = "SELECT f.* " +
                 "FROM film AS f " +
-                "INNER JOIN mpa AS m ON f.mpa = m.id " +
-                "LEFT JOIN film_likes AS lk ON f.id = lk.film_id " +
-                "LEFT JOIN film_genre AS fg ON f.id = fg.film_id " +
                 "WHERE f.release_date >= ? AND f.release_date < ? " +
-                "GROUP BY f.id " +
-                "ORDER BY COUNT(lk.film_id) DESC " +
+                "ORDER BY f.like_count DESC, f.id " +
                 "LIMIT ?";
         List<Film> films = jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs),
                 LocalDate.of(year, 1, 1),
                 LocalDate.of(year, 1, 1).plusYears(1),
                 count);
-        films.forEach(film -> {
-            film.getGenres().addAll(genresDbStorage.getFilmGenres(film.getId()));
-            film.getLikes().addAll(getUserLikes(film.getId()));
-        });
-        return films;
+        return fillFilmsDetails(films);
     }
 
     @Override
-    public void likeFilm(Film film, int userId) {
+    @Transactional
+    public boolean likeFilm(int filmId, int userId) {
         String insert = "INSERT INTO film_likes (user_id, film_id) VALUES ( ?, ?)";
-        jdbcTemplate.update(insert, userId, film.getId());
+        try {
+            jdbcTemplate.update(insert, userId, filmId);
+        } catch (DuplicateKeyException e) {
+            log.debug("Пользователь {} уже поставил лайк фильму {}.", userId, filmId);
+            return false;
+        }
+        jdbcTemplate.update("UPDATE film SET like_count = like_count + 1 WHERE id = ?", filmId);
+        return true;
     }
 
     @Override
-    public void unlikeFilm(Film film, int userId) {
+    @Transactional
+    public boolean unlikeFilm(int filmId, int userId) {
         String delete = "DELETE FROM film_likes WHERE user_id = ? AND film_id = ?";
-        jdbcTemplate.update(delete, userId, film.getId());
+        if (jdbcTemplate.update(delete, userId, filmId) == 0) {
+            return false;
+        }
+        jdbcTemplate.update("UPDATE film SET like_count = like_count - 1 WHERE id = ?", filmId);
+        return true;
     }
 
     @Override
-    public TreeSet<Film> getCommonFilms(int userId, int friendId) {
-        Set<Integer> usersId = new HashSet<>(getFilmsIdByUserLikes(userId));
-        Set<Integer> friendsId = new HashSet<>(getFilmsIdByUserLikes(userId));
-        usersId.retainAll(friendsId);
-        String parameterId = usersId.stream().map(String::valueOf).collect(Collectors.joining(","));
-        String select = String.format("SELECT f.*, m.id AS mpa_id, m.name AS mpa_name " +
+    @Transactional
+    public List<Like> likeFilms(List<Like> likes) {
+        Set<Like> existing = new HashSet<>();
+        for (List<Like> chunk : InClause.chunks(likes, InClause.MAX_PARAMETERS / 2)) {
+            Set<Integer> userIds = chunk.stream().map(Like::getUserId).collect(Collectors.toSet());
+            Set<Integer> ids = chunk.stream().map(Like::getFilmId).collect(Collectors.toSet());
+            String select = String.format("SELECT user_id, film_id FROM film_likes " +
+                            "WHERE user_id IN (%s) AND film_id IN (%s)",
+                    InClause.placeholders(userIds.size()), InClause.placeholders(ids.size()));
+            List<Object> params = new ArrayList<>(userIds);
+            params.addAll(ids);
+            jdbcTemplate.query(select, (RowCallbackHandler) rs -> existing.add(new Like(rs.getInt("user_id"),
+                    rs.getInt("film_id"))), params.toArray());
+        }
+        List<Like> added = likes.stream()
+                .filter(like -> !existing.contains(like))
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT INTO film_likes (user_id, film_id) VALUES (?, ?)",
+                added.stream()
+                        .map(like -> new Object[]{like.getUserId(), like.getFilmId()})
+                        .collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate("UPDATE film SET like_count = like_count + ? WHERE id = ?",
+                added.stream()
+                        .collect(Collectors.groupingBy(Like::getFilmId, Collectors.counting()))
+                        .entrySet().stream()
+                        .map(count -> new Object[]{count.getValue(), count.getKey()})
+                        .collect(Collectors.toList()));
+        return added;
+    }
+
+    @Override
+    @Transactional
+    public List<Integer> rebuildLikeCounts() {
+        List<Integer> drifted = jdbcTemplate.queryForList("SELECT id FROM film " +
+                "WHERE like_count <> (SELECT COUNT(*) FROM film_likes WHERE film_likes.film_id = film.id)", Integer.class);
+        for (List<Integer> chunk : InClause.chunks(drifted, InClause.MAX_PARAMETERS)) {
+            jdbcTemplate.update(String.format("UPDATE film SET like_count = " +
+                    "(SELECT COUNT(*) FROM film_likes WHERE film_likes.film_id = film.id) " +
+                    "WHERE id IN (%s)", InClause.placeholders(chunk.size())), chunk.toArray());
+        }
+        return drifted;
+    }
+
+    @Override
+    public List<Film> getCommonFilms(int userId, int friendId) {
+        String select = "SELECT f.* " +
                 "FROM film AS f " +
-                "INNER JOIN mpa AS m ON f.mpa = m.id WHERE f.id IN (%s)", parameterId);
-        TreeSet<Film> films = new TreeSet<>(((o1, o2) -> o2.getLikes().size() - o1.getLikes().size()));
-        films.addAll(jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs)));
-        return films;
+                "JOIN film_likes AS ul ON ul.film_id = f.id AND ul.user_id = ? " +
+                "JOIN film_likes AS fl ON fl.film_id = f.id AND fl.user_id = ? " +
+                "ORDER BY f.like_count DESC, f.id";
+        return fillFilmsDetails(jdbcTemplate.query(select, (rs, rowNum) -> makeFilm(rs), userId, friendId));
     }
 
-    private List<Integer> getFilmsIdByUserLikes(int userId) {
+    @Override
+    public List<Integer> getFilmsIdByUserLikes(int userId) {
         String select = "SELECT film_id FROM film_likes WHERE user_id = ?";
         return jdbcTemplate.query(select, (rs, rowNum) -> rs.getInt("film_id"), userId);
     }
 
-    public List<Film> getSortedFilms(int directorId, String sortBy) {
+    @Override
+    public Page<Film> getSortedFilms(int directorId, String sortBy, long[] after, Integer limit) {
+        List<Object> params = new ArrayList<>();
+        params.add(directorId);
+        String seek = "";
+        String order;
         if ("year".equals(sortBy)) {
-            String sqlQuery = "SELECT FILM.*, " +
-                    "MPA.* " +
-                    "FROM film " +
-                    "JOIN mpa ON mpa.id=FILM.MPA " +
-                    "JOIN directors ON FILM.id=DIRECTORS.film_id " +
-                    "WHERE DIRECTORS.DIRECTOR_ID =?" +
-                    "ORDER BY FILM.release_date";
-            List<Film> films = jdbcTemplate.query(sqlQuery, new SortedFilmsMapper(), directorId);
-            for (Film film : films) {
-                film.getGenres().addAll(genresDbStorage.getFilmGenres(film.getId()));
-                film.getLikes().addAll(getUserLikes(film.getId()));
-                film.getDirectors().addAll(directorDbStorage.getDirectorByFilmId(film.getId()));
+            order = "ORDER BY f.release_date, f.id ";
+            if (after != null) {
+                seek = "AND (f.release_date > ? OR (f.release_date = ? AND f.id > ?)) ";
+                LocalDate releaseDate = LocalDate.ofEpochDay(after[0]);
+                params.addAll(List.of(releaseDate, releaseDate, after[1]));
             }
-            return films;
         } else if ("likes".equals(sortBy)) {
-            String sqlQuery = "SELECT FILM.*, " +
-                    "MPA.*, " +
-                    "COUNT(FILM_LIKES.user_id) " +
-                    "FROM FILM " +
-                    "Left JOIN FILM_LIKES ON FILM.id=FILM_LIKES.film_id " +
-                    "Left JOIN MPA ON MPA.id=FILM.MPA " +
-                    "Left JOIN directors ON FILM.id=DIRECTORS.film_id " +
-                    "WHERE DIRECTORS.DIRECTOR_ID=? " +
-                    "GROUP BY FILM.id " +
-                    "ORDER BY COUNT(FILM_LIKES.user_id) DESC ";
-            List<Film> films = jdbcTemplate.query(sqlQuery, new SortedFilmsMapper(), directorId);
-            for (Film film : films) {
-                film.getGenres().addAll(genresDbStorage.getFilmGenres(film.getId()));
-                film.getLikes().addAll(getUserLikes(film.getId()));
-                film.getDirectors().addAll(directorDbStorage.getDirectorByFilmId(film.getId()));
+            order = "ORDER BY f.like_count DESC, f.id ";
+            if (after != null) {
+                seek = "AND (f.like_count < ? OR (f.like_count = ? AND f.id > ?)) ";
+                params.addAll(List.of(after[0], after[0], after[1]));
             }
-            return films;
         } else {
             throw new RuntimeException("Такого варианта сортировки нет");
         }
-    }
-
-    public static class SortedFilmsMapper implements RowMapper<Film> {
-        @Override
-        public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Film film = new Film();
-            film.setId(rs.getInt("film.id"));
-            film.setName(rs.getString("film.name"));
-            film.setDuration(rs.getInt("film.duration"));
-            film.setDescription(rs.getString("film.description"));
-            film.setReleaseDate(rs.getDate("film.release_date").toLocalDate());
-            Mpa mpa = new Mpa();
-            mpa.setId(rs.getInt("mpa.id"));
-            mpa.setName(rs.getString("mpa.name"));
-            film.setMpa(mpa);
-            return film;
+        String sqlQuery = "SELECT f.* " +
+                "FROM film AS f " +
+                "JOIN directors AS d ON f.id = d.film_id " +
+                "WHERE d.director_id = ? " + seek + order;
+        if (limit == null) {
+            return new Page<>(fillFilmsDetails(jdbcTemplate.query(sqlQuery, (rs, rowNum) -> makeFilm(rs),
+                    params.toArray())), null);
         }
+        sqlQuery += "LIMIT ?";
+        params.add(limit + 1);
+        Map<Integer, long[]> keys = new HashMap<>();
+        List<Film> films = jdbcTemplate.query(sqlQuery, (rs, rowNum) -> {
+            Film film = makeFilm(rs);
+            keys.put(film.getId(), new long[]{"year".equals(sortBy)
+                    ? film.getReleaseDate().toEpochDay() : rs.getLong("like_count"), film.getId()});
+            return film;
+        }, params.toArray());
+        return Pagination.page(fillFilmsDetails(films), limit, film -> keys.get(film.getId()));
     }
 
     public List<Like> getAllLikes() {
@@ -308,29 +447,105 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public void removeFilmById(int filmId) {
+        knownFilmIds.remove(filmId);
         jdbcTemplate.update("DELETE FROM film WHERE ID=?", filmId);
     }
 
-    private List<Integer> getUserLikes(int filmId) {
-        String select = "SELECT user_id " +
+    private Map<Integer, List<Integer>> getUsersLikes(List<Integer> filmIds) {
+        String select = "SELECT film_id, user_id " +
                 "FROM film_likes " +
-                "WHERE film_id = ?";
-        return jdbcTemplate.query(select, (rs, rowNum) -> rs.getInt("user_id"), filmId);
+                "WHERE film_id IN (%s)";
+        Map<Integer, List<Integer>> likes = new HashMap<>();
+        InClause.query(jdbcTemplate, select, filmIds, rs -> likes
+                .computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>())
+                .add(rs.getInt("user_id")));
+        return likes;
+    }
+
+    private List<Film> fillFilmsDetails(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        List<Integer> filmIds = films.stream()
+                .map(Film::getId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Integer, List<Genre>> genres = genresDbStorage.getFilmsGenres(filmIds);
+        Map<Integer, Set<Director>> directors = directorDbStorage.getDirectorsByFilmIds(filmIds);
+        Map<Integer, List<Integer>> likes = getUsersLikes(filmIds);
+        for (Film film : films) {
+            film.getGenres().addAll(genres.getOrDefault(film.getId(), Collections.emptyList()));
+            film.getDirectors().addAll(directors.getOrDefault(film.getId(), Collections.emptySet()));
+            film.getLikes().addAll(likes.getOrDefault(film.getId(), Collections.emptyList()));
+        }
+        return films;
+    }
+
+    private void streamGrouped(String select, GroupingHandler<?> handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(select,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, handler);
+        handler.finish();
+    }
+
+    private FilmRank makeFilmRank(ResultSet rs) throws SQLException {
+        return new FilmRank(rs.getInt("id"), rs.getInt("like_count"), rs.getDate("release_date").toLocalDate(),
+                null);
     }
 
     private Film makeFilm(ResultSet rs) throws SQLException {
-        int id = rs.getInt("id");
         Film film = new Film();
         film.setId(rs.getInt("id"));
         film.setName(rs.getString("name"));
         film.setDescription(rs.getString("description"));
         film.setDuration(rs.getInt("duration"));
         film.setReleaseDate(rs.getDate("release_date").toLocalDate());
-        film.setMpa(new Mpa(rs.getInt("mpa"), rs.getString("mpa_name")));
-        film.getLikes().addAll(getUserLikes(id));
-        film.getGenres().addAll(genresDbStorage.getFilmGenres(id));
+        film.setMpa(referenceDataSnapshot.resolveMpa(rs.getInt("mpa")));
         return film;
+    }
+
+    private static class GroupingHandler<T> implements RowCallbackHandler {
+        private final String childColumn;
+        private final RowMapper<T> mapper;
+        private final BiConsumer<T, int[]> children;
+        private final Consumer<T> consumer;
+        private final List<Integer> childIds = new ArrayList<>();
+        private T current;
+        private int currentId;
+
+        private GroupingHandler(String childColumn, RowMapper<T> mapper, BiConsumer<T, int[]> children,
+                                Consumer<T> consumer) {
+            this.childColumn = childColumn;
+            this.mapper = mapper;
+            this.children = children;
+            this.consumer = consumer;
+        }
 
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int id = rs.getInt("id");
+            if (current == null || id != currentId) {
+                finish();
+                current = mapper.mapRow(rs, 0);
+                currentId = id;
+            }
+            int childId = rs.getInt(childColumn);
+            if (!rs.wasNull()) {
+                childIds.add(childId);
+            }
+        }
+
+        private void finish() {
+            if (current != null) {
+                children.accept(current, childIds.stream().mapToInt(Integer::intValue).distinct().toArray());
+                consumer.accept(current);
+                current = null;
+                childIds.clear();
+            }
+        }
     }
 
     public static class LikeMapper implements RowMapper<Like> {
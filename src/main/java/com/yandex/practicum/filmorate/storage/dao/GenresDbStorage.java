@@ -6,13 +6,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -24,34 +25,24 @@ import java.util.stream.Collectors;
 @Slf4j
 public class GenresDbStorage implements GenresStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataSnapshot referenceDataSnapshot;
 
     @Override
     public List<Genre> getGenres() {
-        String select = "SELECT * FROM genre";
-        return jdbcTemplate.query(select, (rs, rowNum) -> makeGenre(rs));
+        return referenceDataSnapshot.getGenres();
     }
 
     @Override
     public Optional<Genre> getGenreById(int id) {
-        String select = "SELECT * FROM genre WHERE id = ?";
-        SqlRowSet genreRow = jdbcTemplate.queryForRowSet(select, id);
-        if (genreRow.next()) {
-            Genre genre = new Genre(
-                    genreRow.getInt("id"),
-                    genreRow.getString("name"));
-            return Optional.of(genre);
-        } else {
-            return Optional.empty();
-        }
+        return referenceDataSnapshot.getGenreById(id);
     }
 
     @Override
     public Map<Integer, Genre> getGenresByIds(List<Integer> ids) {
-        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
-        String select = String.format("SELECT * FROM genre WHERE id IN (%s)", in);
-        return jdbcTemplate.query(select, (rs, rowNum) -> makeGenre(rs), ids.toArray())
-                .stream()
-                .collect(Collectors.toMap(Genre::getId, Function.identity()));
+        return ids.stream()
+                .map(referenceDataSnapshot::getGenreById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toMap(Genre::getId, Function.identity(), (first, second) -> first));
     }
 
     @Override
@@ -105,6 +96,22 @@ public class GenresDbStorage implements GenresStorage {
         }
     }
 
+    @Override
+    public Map<Integer, List<Genre>> getFilmsGenres(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String select = "SELECT film_id, genre_id " +
+                "FROM film_genre " +
+                "WHERE film_id IN (%s) " +
+                "ORDER BY genre_id";
+        Map<Integer, List<Genre>> genres = new HashMap<>();
+        InClause.query(jdbcTemplate, select, filmIds, rs -> genres
+                .computeIfAbsent(rs.getInt("film_id"), id -> new ArrayList<>())
+                .add(referenceDataSnapshot.resolveGenre(rs.getInt("genre_id"))));
+        return genres;
+    }
+
     private Genre makeGenre(ResultSet rs) throws SQLException {
         return new Genre(rs.getInt("id"), rs.getString("name"));
     }
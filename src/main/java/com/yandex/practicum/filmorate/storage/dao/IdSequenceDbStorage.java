@@ -0,0 +1,36 @@
+package com.yandex.practicum.filmorate.storage.dao;
+
+import com.yandex.practicum.filmorate.storage.IdSequenceStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+@Component("idSequenceStorage")
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceDbStorage implements IdSequenceStorage {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long nextValue(String sequence) {
+        return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+    }
+
+    @Override
+    public void alignWithTable(String sequence, String table, int blockSize) {
+        Integer maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Integer.class);
+        if (maxId == null) {
+            return;
+        }
+        long required = maxId / blockSize + 2;
+        Long current = jdbcTemplate.queryForObject("SELECT base_value FROM information_schema.sequences " +
+                "WHERE sequence_name = ?", Long.class, sequence.toUpperCase(Locale.ROOT));
+        if (current != null && current < required) {
+            log.warn("Последовательность {} отстает от таблицы {}, перезапуск с {}.", sequence, table, required);
+            jdbcTemplate.update("ALTER SEQUENCE " + sequence + " RESTART WITH " + required);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.yandex.practicum.filmorate.storage.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+final class InClause {
+    static final int MAX_PARAMETERS = 1000;
+
+    private InClause() {
+    }
+
+    static String placeholders(int size) {
+        return String.join(",", Collections.nCopies(size, "?"));
+    }
+
+    static <T> List<List<T>> chunks(Collection<T> values, int size) {
+        List<T> list = values instanceof List ? (List<T>) values : new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>((list.size() + size - 1) / size);
+        for (int from = 0; from < list.size(); from += size) {
+            chunks.add(list.subList(from, Math.min(from + size, list.size())));
+        }
+        return chunks;
+    }
+
+    static void query(JdbcTemplate jdbcTemplate, String template, Collection<?> ids, RowCallbackHandler handler) {
+        for (List<?> chunk : chunks(ids, MAX_PARAMETERS)) {
+            jdbcTemplate.query(String.format(template, placeholders(chunk.size())), handler, chunk.toArray());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.yandex.practicum.filmorate.storage.dao;
+
+import com.yandex.practicum.filmorate.model.Director;
+import com.yandex.practicum.filmorate.model.Genre;
+import com.yandex.practicum.filmorate.model.Mpa;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataSnapshot {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Snapshot snapshot;
+
+    public List<Mpa> getMpa() {
+        return copyAll(current().mpaList, ReferenceDataSnapshot::copy);
+    }
+
+    public Optional<Mpa> getMpaById(int id) {
+        return Optional.ofNullable(copy(byId(current().mpa, id)));
+    }
+
+    public List<Genre> getGenres() {
+        return copyAll(current().genreList, ReferenceDataSnapshot::copy);
+    }
+
+    public Optional<Genre> getGenreById(int id) {
+        return Optional.ofNullable(copy(byId(current().genres, id)));
+    }
+
+    public List<Director> getDirectors() {
+        return copyAll(current().directorList, ReferenceDataSnapshot::copy);
+    }
+
+    public Optional<Director> getDirectorById(int id) {
+        return Optional.ofNullable(copy(byId(current().directors, id)));
+    }
+
+    public boolean containsDirector(int id) {
+        return byId(current().directors, id) != null;
+    }
+
+    // общие экземпляры снимка для сборки строк, менять их нельзя
+    public Mpa resolveMpa(int id) {
+        Mpa mpa = byId(current().mpa, id);
+        return mpa != null ? mpa : byId(reload().mpa, id);
+    }
+
+    public Genre resolveGenre(int id) {
+        Genre genre = byId(current().genres, id);
+        return genre != null ? genre : byId(reload().genres, id);
+    }
+
+    public Director resolveDirector(int id) {
+        Director director = byId(current().directors, id);
+        return director != null ? director : byId(reload().directors, id);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.reference.refresh-interval-ms:60000}")
+    public void refresh() {
+        reload();
+    }
+
+    private synchronized Snapshot reload() {
+        List<Mpa> mpa = jdbcTemplate.query("SELECT * FROM mpa ORDER BY id",
+                (rs, rowNum) -> new Mpa(rs.getInt("id"), rs.getString("name")));
+        List<Genre> genres = jdbcTemplate.query("SELECT * FROM genre ORDER BY id",
+                (rs, rowNum) -> new Genre(rs.getInt("id"), rs.getString("name")));
+        List<Director> directors = jdbcTemplate.query("SELECT director_id, director_name FROM director " +
+                "ORDER BY director_id", new DirectorDbStorage.DirectorMapper());
+        snapshot = new Snapshot(
+                toArray(mpa, Mpa::getId, Mpa[]::new),
+                toArray(genres, Genre::getId, Genre[]::new),
+                toArray(directors, Director::getId, Director[]::new));
+        log.debug("Справочники обновлены: рейтингов {}, жанров {}, режиссеров {}.",
+                mpa.size(), genres.size(), directors.size());
+        return snapshot;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    private static Mpa copy(Mpa mpa) {
+        return mpa != null ? new Mpa(mpa.getId(), mpa.getName()) : null;
+    }
+
+    private static Genre copy(Genre genre) {
+        return genre != null ? new Genre(genre.getId(), genre.getName()) : null;
+    }
+
+    private static Director copy(Director director) {
+        return director != null ? new Director(director.getId(), director.getName()) : null;
+    }
+
+    private static <T> List<T> copyAll(List<T> values, UnaryOperator<T> copy) {
+        return values.stream()
+                .map(copy)
+                .collect(Collectors.toList());
+    }
+
+    private static <T> T byId(T[] values, int id) {
+        return id >= 0 && id < values.length ? values[id] : null;
+    }
+
+    private static <T> T[] toArray(List<T> values, ToIntFunction<T> id, IntFunction<T[]> factory) {
+        int maxId = values.stream().mapToInt(id).max().orElse(-1);
+        T[] result = factory.apply(maxId + 1);
+        values.forEach(value -> result[id.applyAsInt(value)] = value);
+        return result;
+    }
+
+    private static final class Snapshot {
+        private final Mpa[] mpa;
+        private final Genre[] genres;
+        private final Director[] directors;
+        private final List<Mpa> mpaList;
+        private final List<Genre> genreList;
+        private final List<Director> directorList;
+
+        private Snapshot(Mpa[] mpa, Genre[] genres, Director[] directors) {
+            this.mpa = mpa;
+            this.genres = genres;
+            this.directors = directors;
+            this.mpaList = toList(mpa);
+            this.genreList = toList(genres);
+            this.directorList = toList(directors);
+        }
+
+        private static <T> List<T> toList(T[] values) {
+            return Collections.unmodifiableList(Arrays.stream(values)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()));
+        }
+    }
+}
@@ -4,15 +4,18 @@ import com.yandex.practicum.filmorate.model.Review;
 import com.yandex.practicum.filmorate.storage.ReviewsStorage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -54,11 +57,7 @@ public class ReviewsDbStorage implements ReviewsStorage {
     @Override
     public Optional<Review> getReviewById(int id) {
         try {
-            String select = "SELECT reviews.*, IFNULL(SUM(r.reaction), 0) as useful " +
-                    "FROM reviews " +
-                    "LEFT JOIN review_reactions AS r ON reviews.id = r.review_id " +
-                    "WHERE reviews.id = ? " +
-                    "GROUP BY reviews.id ";
+            String select = "SELECT * FROM reviews WHERE id = ?";
             SqlRowSet reviewRow = jdbcTemplate.queryForRowSet(select, id);
             if (reviewRow.next()) {
                 Review review = Review.builder()
@@ -86,47 +85,91 @@ public class ReviewsDbStorage implements ReviewsStorage {
     }
 
     @Override
-    public List<Review> getReviewsByFilm(int filmId, int count) {
-        String select = "SELECT reviews.*, IFNULL(SUM(r.reaction), 0) as useful " +
-                "FROM reviews " +
-                "LEFT JOIN review_reactions AS r ON reviews.id = r.review_id " +
-                "WHERE reviews.film_id = ? " +
-                "GROUP BY reviews.id " +
-                "ORDER BY useful DESC " +
-                "LIMIT ? ";
-        return jdbcTemplate.query(select, (rs, rowNum) -> makeReview(rs), filmId, count);
-    }
-
-    @Override
-    public List<Review> getReviewsWithoutFilm(int count) {
-        String select = "SELECT reviews.*, IFNULL(SUM(r.reaction), 0) as useful " +
-                "FROM reviews " +
-                "LEFT JOIN review_reactions AS r ON reviews.id = r.review_id " +
-                "GROUP BY reviews.id " +
-                "ORDER BY useful DESC " +
-                "LIMIT ? ";
-        return jdbcTemplate.query(select, (rs, rowNum) -> makeReview(rs), count);
+    public List<Review> getReviews(Integer filmId, Integer afterUseful, Integer afterId, int count) {
+        List<Object> params = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (filmId != null) {
+            conditions.add("film_id = ?");
+            params.add(filmId);
+        }
+        if (afterUseful != null && afterId != null) {
+            conditions.add("(useful < ? OR (useful = ? AND id > ?))");
+            params.addAll(List.of(afterUseful, afterUseful, afterId));
+        }
+        String select = "SELECT * FROM reviews " +
+                (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ") +
+                "ORDER BY useful DESC, id " +
+                "LIMIT ?";
+        params.add(count);
+        return jdbcTemplate.query(select, (rs, rowNum) -> makeReview(rs), params.toArray());
     }
 
     @Override
+    @Transactional
     public void userLikeReview(int id, int userId, boolean added) {
         if (added) {
-            String update = "INSERT INTO review_reactions (user_id, review_id, reaction) VALUES (?,?,?)";
-            jdbcTemplate.update(update, userId, id, 1);
+            addReaction(id, userId, 1);
         } else {
-            String delete = String.format("DELETE FROM review_reactions WHERE user_id = (%s) AND review_id = (%s)", userId, id);
-            jdbcTemplate.update(delete);
+            removeReactions(id, userId);
         }
     }
 
     @Override
+    @Transactional
     public void userDislikeReview(int id, int userId, boolean added) {
         if (added) {
-            String update = "INSERT INTO review_reactions (user_id, review_id, reaction) VALUES (?,?,?)";
-            jdbcTemplate.update(update, userId, id, -1);
+            addReaction(id, userId, -1);
         } else {
-            String delete = String.format("DELETE FROM review_reactions WHERE user_id = (%s) AND review_id = (%s)", userId, id);
-            jdbcTemplate.update(delete);
+            removeReactions(id, userId);
+        }
+    }
+
+    @Override
+    public int rebuildUseful() {
+        String update = "UPDATE reviews SET useful = " +
+                "(SELECT COALESCE(SUM(r.reaction), 0) FROM review_reactions AS r WHERE r.review_id = reviews.id) " +
+                "WHERE useful <> " +
+                "(SELECT COALESCE(SUM(r.reaction), 0) FROM review_reactions AS r WHERE r.review_id = reviews.id)";
+        return jdbcTemplate.update(update);
+    }
+
+    private void addReaction(int id, int userId, int reaction) {
+        Integer previous = getReaction(id, userId);
+        if (previous == null) {
+            try {
+                jdbcTemplate.update("INSERT INTO review_reactions (user_id, review_id, reaction) VALUES (?, ?, ?)",
+                        userId, id, reaction);
+                changeUseful(id, reaction);
+                return;
+            } catch (DuplicateKeyException e) {
+                previous = getReaction(id, userId);
+            }
+        }
+        if (previous != null && previous != reaction) {
+            jdbcTemplate.update("MERGE INTO review_reactions (user_id, review_id, reaction) KEY (user_id, review_id) " +
+                    "VALUES (?, ?, ?)", userId, id, reaction);
+            changeUseful(id, reaction - previous);
+        }
+    }
+
+    private void removeReactions(int id, int userId) {
+        Integer previous = getReaction(id, userId);
+        if (previous != null
+                && jdbcTemplate.update("DELETE FROM review_reactions WHERE user_id = ? AND review_id = ?",
+                userId, id) > 0) {
+            changeUseful(id, -previous);
+        }
+    }
+
+    private Integer getReaction(int id, int userId) {
+        String select = "SELECT reaction FROM review_reactions WHERE user_id = ? AND review_id = ? FOR UPDATE";
+        List<Integer> reactions = jdbcTemplate.queryForList(select, Integer.class, userId, id);
+        return reactions.isEmpty() ? null : reactions.get(0);
+    }
+
+    private void changeUseful(int id, int delta) {
+        if (delta != 0) {
+            jdbcTemplate.update("UPDATE reviews SET useful = useful + ? WHERE id = ?", delta, id);
         }
     }
 
@@ -1,29 +1,70 @@
 package com.yandex.practicum.filmorate.storage.dao;
 
+import com.yandex.practicum.filmorate.model.Friendship;
 import com.yandex.practicum.filmorate.model.HistoryEvent;
 import com.yandex.practicum.filmorate.model.User;
 import com.yandex.practicum.filmorate.storage.UserStorage;
+import com.yandex.practicum.filmorate.utils.IdBitmap;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.sql.Date;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component("userStorage")
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final IdBitmap knownUserIds = new IdBitmap();
+    @Value("${filmorate.export.fetch-size:500}")
+    private int fetchSize;
+
+    @PostConstruct
+    public void loadUserIds() {
+        knownUserIds.addAll(jdbcTemplate.queryForList("SELECT id FROM users", Integer.class));
+    }
 
     @Override
     public List<User> getUsers() {
         String select = "SELECT * FROM users";
-        return jdbcTemplate.query(select, (rs, rowNum) -> makeUser(rs));
+        return fillFriends(jdbcTemplate.query(select, (rs, rowNum) -> makeUserWithoutFriends(rs)));
+    }
+
+    @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        String select = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return fillFriends(jdbcTemplate.query(select, (rs, rowNum) -> makeUserWithoutFriends(rs), afterId, limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamUsers(Consumer<User> consumer) {
+        List<User> chunk = new ArrayList<>(fetchSize);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT * FROM users ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            chunk.add(makeUserWithoutFriends(rs));
+            if (chunk.size() >= fetchSize) {
+                fillFriends(chunk).forEach(consumer);
+                chunk.clear();
+            }
+        });
+        fillFriends(chunk).forEach(consumer);
     }
 
     @Override
@@ -45,6 +86,66 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    @Override
+    public boolean existsById(int id) {
+        if (knownUserIds.contains(id)) {
+            return true;
+        }
+        boolean exists = !jdbcTemplate.queryForList("SELECT 1 FROM users WHERE id = ?", Integer.class, id).isEmpty();
+        if (exists) {
+            knownUserIds.add(id);
+        }
+        return exists;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> unknown = new ArrayList<>();
+        ids.forEach(id -> {
+            if (knownUserIds.contains(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        });
+        InClause.query(jdbcTemplate, "SELECT id FROM users WHERE id IN (%s)", unknown, rs -> {
+            existing.add(rs.getInt("id"));
+            knownUserIds.add(rs.getInt("id"));
+        });
+        return existing;
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<User> found = new ArrayList<>();
+        InClause.query(jdbcTemplate, "SELECT * FROM users WHERE id IN (%s)", ids,
+                rs -> found.add(makeUserWithoutFriends(rs)));
+        Map<Integer, User> users = new HashMap<>();
+        fillFriends(found).forEach(user -> users.put(user.getId(), user));
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> getFriends(int userId, int afterId, Integer limit) {
+        String select = "SELECT u.* " +
+                "FROM user_friends AS uf " +
+                "JOIN users AS u ON u.id = uf.friends_id " +
+                "WHERE uf.user_id = ? AND u.id > ? " +
+                "ORDER BY u.id";
+        List<User> friends = limit == null
+                ? jdbcTemplate.query(select, (rs, rowNum) -> makeUserWithoutFriends(rs), userId, afterId)
+                : jdbcTemplate.query(select + " LIMIT ?", (rs, rowNum) -> makeUserWithoutFriends(rs),
+                userId, afterId, limit);
+        return fillFriends(friends);
+    }
+
     @Override
     public User createUser(User user) {
         String insert = "INSERT INTO users (ID, EMAIL, LOGIN, NAME, BIRTHDAY) VALUES ( ?, ?, ?, ?, ?)";
@@ -54,15 +155,15 @@ public class UserDbStorage implements UserStorage {
                 user.getLogin(),
                 user.getName(),
                 Date.valueOf(user.getBirthday()));
+        knownUserIds.add(user.getId());
         return user;
     }
 
     @Override
     public Optional<User> updateUser(User user) {
-        String delete = "DELETE FROM users WHERE id = ?";
-        String insert = "INSERT INTO users (id, email, login, name, birthday) VALUES ( ?, ?, ?, ?,?)";
-        jdbcTemplate.update(delete, user.getId());
-        jdbcTemplate.update(insert, user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        String update = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
+        jdbcTemplate.update(update, user.getEmail(), user.getLogin(), user.getName(),
+                Date.valueOf(user.getBirthday()), user.getId());
         return getUserById(user.getId());
     }
 
@@ -85,36 +186,99 @@ public class UserDbStorage implements UserStorage {
         jdbcTemplate.update(remove, targetUser.getId(), friend.getId());
     }
 
+    @Override
+    public List<Friendship> getAllFriendships() {
+        String select = "SELECT user_id, friends_id FROM user_friends";
+        return jdbcTemplate.query(select, (rs, rowNum) -> new Friendship(rs.getInt("user_id"),
+                rs.getInt("friends_id")));
+    }
+
+    @Override
+    @Transactional
+    public List<Friendship> addFriendships(List<Friendship> friendships) {
+        Set<Friendship> existing = new HashSet<>();
+        for (List<Friendship> chunk : InClause.chunks(friendships, InClause.MAX_PARAMETERS / 2)) {
+            Set<Integer> ids = chunk.stream().map(Friendship::getUserId).collect(Collectors.toSet());
+            Set<Integer> friendIds = chunk.stream().map(Friendship::getFriendId).collect(Collectors.toSet());
+            String select = String.format("SELECT user_id, friends_id FROM user_friends " +
+                            "WHERE user_id IN (%s) AND friends_id IN (%s)",
+                    InClause.placeholders(ids.size()), InClause.placeholders(friendIds.size()));
+            List<Object> params = new ArrayList<>(ids);
+            params.addAll(friendIds);
+            jdbcTemplate.query(select, (RowCallbackHandler) rs -> existing.add(new Friendship(rs.getInt("user_id"),
+                    rs.getInt("friends_id"))), params.toArray());
+        }
+        List<Friendship> added = friendships.stream()
+                .filter(friendship -> !existing.contains(friendship))
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("INSERT INTO user_friends (user_id, friends_id) VALUES (?, ?)",
+                added.stream()
+                        .map(friendship -> new Object[]{friendship.getUserId(), friendship.getFriendId()})
+                        .collect(Collectors.toList()));
+        return added;
+    }
+
     @Override
     public List<HistoryEvent> getFeedsByUserId(int id) {
         String select = "SELECT * " +
                 "FROM history_event " +
-                "WHERE user_id = ?";
+                "WHERE user_id = ? " +
+                "ORDER BY event_id";
         return jdbcTemplate.query(select, (rs, rowNum) -> makeHistoryEvent(rs), id);
     }
 
     @Override
-    public void addHistoryEvent(int userId, String eventType, String operation, int entityId) {
+    public List<HistoryEvent> getFeedsPage(int id, int afterEventId, int limit) {
+        String select = "SELECT * " +
+                "FROM history_event " +
+                "WHERE user_id = ? AND event_id > ? " +
+                "ORDER BY event_id " +
+                "LIMIT ?";
+        return jdbcTemplate.query(select, (rs, rowNum) -> makeHistoryEvent(rs), id, afterEventId, limit);
+    }
+
+    @Override
+    public void addHistoryEvents(List<HistoryEvent> events) {
         String insert = "INSERT INTO history_event (user_id, event_type, operation, entity_id, timestamp) " +
                 "VALUES ( ?, ?, ?, ?, ?)";
-        jdbcTemplate.update(insert, userId, eventType, operation, entityId, System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(insert, events.stream()
+                .map(event -> new Object[]{event.getUserId(), event.getEventType(), event.getOperation(),
+                        event.getEntityId(), event.getTimestamp()})
+                .collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional
     public void deleteUserById(int id) {
+        knownUserIds.remove(id);
+        jdbcTemplate.update("UPDATE film SET like_count = like_count - 1 " +
+                "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = ?)", id);
+        jdbcTemplate.update("UPDATE reviews SET useful = useful - " +
+                "(SELECT SUM(r.reaction) FROM review_reactions AS r WHERE r.review_id = reviews.id AND r.user_id = ?) " +
+                "WHERE id IN (SELECT review_id FROM review_reactions WHERE user_id = ?)", id, id);
         jdbcTemplate.update("DELETE FROM users WHERE ID=?", id);
     }
 
-    private User makeUser(ResultSet rs) throws SQLException {
-        int id = rs.getInt("id");
-        User user = User.builder().id(id)
+    private List<User> fillFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        String select = "SELECT user_id, friends_id FROM user_friends WHERE user_id IN (%s)";
+        Map<Integer, List<Integer>> friends = new HashMap<>();
+        InClause.query(jdbcTemplate, select, users.stream().map(User::getId).collect(Collectors.toList()), rs -> friends
+                .computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>())
+                .add(rs.getInt("friends_id")));
+        users.forEach(user -> user.getFriends().addAll(friends.getOrDefault(user.getId(), Collections.emptyList())));
+        return users;
+    }
+
+    private User makeUserWithoutFriends(ResultSet rs) throws SQLException {
+        return User.builder().id(rs.getInt("id"))
                 .login(rs.getString("login"))
                 .email(rs.getString("email"))
                 .name(rs.getString("name"))
                 .birthday(rs.getDate("birthday").toLocalDate())
                 .build();
-        user.getFriends().addAll(getUserFriendsByUserId(id));
-        return user;
     }
 
     private HistoryEvent makeHistoryEvent(ResultSet rs) throws SQLException {
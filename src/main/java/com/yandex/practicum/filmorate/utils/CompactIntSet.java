@@ -0,0 +1,345 @@
+package com.yandex.practicum.filmorate.utils;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+public class CompactIntSet extends AbstractSet<Integer> {
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_BITMAP_SIZE = 1024;
+    private static final long NONE = Long.MAX_VALUE;
+
+    private int[] values = EMPTY;
+    private long[] bits;
+    private int size;
+
+    public static CompactIntSet of(int... values) {
+        CompactIntSet set = new CompactIntSet();
+        set.addAll(values);
+        return set;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && containsInt((Integer) o);
+    }
+
+    public boolean containsInt(int value) {
+        if (bits != null) {
+            return value >= 0 && (value >>> 6) < bits.length && (bits[value >>> 6] & (1L << value)) != 0;
+        }
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return addInt(value);
+    }
+
+    public boolean addInt(int value) {
+        if (bits != null && (value < 0 || ((value >>> 6) + 1) * 2L >= size + 1L && (value >>> 6) >= bits.length)) {
+            toArrayMode();
+        }
+        if (bits != null) {
+            int word = value >>> 6;
+            if (word >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(word + 1, bits.length + (bits.length >> 1)));
+            }
+            if ((bits[word] & (1L << value)) != 0) {
+                return false;
+            }
+            bits[word] |= 1L << value;
+            size++;
+            return true;
+        }
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        compact();
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        if (c instanceof CompactIntSet) {
+            return addAll(((CompactIntSet) c).toIntArray());
+        }
+        return addAll(c.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public boolean addAll(int... added) {
+        if (added.length == 0) {
+            return false;
+        }
+        int before = size;
+        if (bits != null) {
+            for (int value : added) {
+                addInt(value);
+            }
+            return size != before;
+        }
+        int[] sorted = added.clone();
+        Arrays.sort(sorted);
+        int[] merged = new int[size + sorted.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < size || j < sorted.length) {
+            int next;
+            if (j == sorted.length || (i < size && values[i] <= sorted[j])) {
+                next = values[i++];
+            } else {
+                next = sorted[j++];
+            }
+            if (n == 0 || merged[n - 1] != next) {
+                merged[n++] = next;
+            }
+        }
+        values = merged;
+        size = n;
+        compact();
+        return size != before;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && removeInt((Integer) o);
+    }
+
+    public boolean removeInt(int value) {
+        if (!containsInt(value)) {
+            return false;
+        }
+        if (bits != null) {
+            bits[value >>> 6] &= ~(1L << value);
+        } else {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+        }
+        size--;
+        compact();
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        values = EMPTY;
+        bits = null;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private long last = Long.MIN_VALUE;
+            private long next = higher(last);
+            private boolean canRemove;
+
+            @Override
+            public boolean hasNext() {
+                return next != NONE;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == NONE) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = higher(last);
+                canRemove = true;
+                return (int) last;
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                removeInt((int) last);
+                canRemove = false;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super Integer> action) {
+        forEachInt(action::accept);
+    }
+
+    public void forEachInt(IntConsumer action) {
+        if (bits != null) {
+            for (int bit = nextSetBit(bits, 0); bit >= 0; bit = nextSetBit(bits, bit + 1)) {
+                action.accept(bit);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    public int[] toIntArray() {
+        if (bits == null) {
+            return Arrays.copyOf(values, size);
+        }
+        int[] result = new int[size];
+        int[] n = {0};
+        forEachInt(value -> result[n[0]++] = value);
+        return result;
+    }
+
+    public int intersectionSize(CompactIntSet other) {
+        if (bits != null && other.bits != null) {
+            int count = 0;
+            for (int i = 0; i < Math.min(bits.length, other.bits.length); i++) {
+                count += Long.bitCount(bits[i] & other.bits[i]);
+            }
+            return count;
+        }
+        CompactIntSet small = size <= other.size ? this : other;
+        CompactIntSet large = small == this ? other : this;
+        if (small.bits == null && large.bits == null && small.size * 16 > large.size) {
+            int count = 0;
+            for (int i = 0, j = 0; i < small.size && j < large.size; ) {
+                if (small.values[i] < large.values[j]) {
+                    i++;
+                } else if (small.values[i] > large.values[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+        int[] count = {0};
+        small.forEachInt(value -> {
+            if (large.containsInt(value)) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    public CompactIntSet intersect(CompactIntSet other) {
+        CompactIntSet result = new CompactIntSet();
+        if (bits != null && other.bits != null) {
+            long[] common = new long[Math.min(bits.length, other.bits.length)];
+            int count = 0;
+            for (int i = 0; i < common.length; i++) {
+                common[i] = bits[i] & other.bits[i];
+                count += Long.bitCount(common[i]);
+            }
+            result.bits = common;
+            result.size = count;
+            result.compact();
+            return result;
+        }
+        CompactIntSet small = size <= other.size ? this : other;
+        CompactIntSet large = small == this ? other : this;
+        int[] common = new int[small.size];
+        int[] n = {0};
+        small.forEachInt(value -> {
+            if (large.containsInt(value)) {
+                common[n[0]++] = value;
+            }
+        });
+        result.values = common;
+        result.size = n[0];
+        result.compact();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof CompactIntSet) {
+            CompactIntSet other = (CompactIntSet) o;
+            return size == other.size && intersectionSize(other) == size;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = {0};
+        forEachInt(value -> hash[0] += value);
+        return hash[0];
+    }
+
+    private long higher(long value) {
+        if (bits != null) {
+            if (value >= Integer.MAX_VALUE) {
+                return NONE;
+            }
+            int bit = nextSetBit(bits, value < 0 ? 0 : (int) value + 1);
+            return bit < 0 ? NONE : bit;
+        }
+        int index = 0;
+        if (value >= Integer.MIN_VALUE) {
+            index = Arrays.binarySearch(values, 0, size, (int) value);
+            index = index >= 0 ? index + 1 : -index - 1;
+        }
+        return index < size ? values[index] : NONE;
+    }
+
+    private void compact() {
+        if (bits == null) {
+            if (size >= MIN_BITMAP_SIZE && values[0] >= 0 && ((values[size - 1] >>> 6) + 1) * 2 < size) {
+                toBitmapMode();
+            }
+        } else if (size < bits.length) {
+            toArrayMode();
+        }
+    }
+
+    private void toBitmapMode() {
+        long[] bitmap = new long[(values[size - 1] >>> 6) + 1];
+        for (int i = 0; i < size; i++) {
+            bitmap[values[i] >>> 6] |= 1L << values[i];
+        }
+        bits = bitmap;
+        values = EMPTY;
+    }
+
+    private void toArrayMode() {
+        int[] array = toIntArray();
+        bits = null;
+        values = array;
+    }
+
+    private static int nextSetBit(long[] bits, int from) {
+        int word = from >>> 6;
+        if (word >= bits.length) {
+            return -1;
+        }
+        long current = bits[word] & (-1L << from);
+        while (true) {
+            if (current != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(current);
+            }
+            if (++word == bits.length) {
+                return -1;
+            }
+            current = bits[word];
+        }
+    }
+}
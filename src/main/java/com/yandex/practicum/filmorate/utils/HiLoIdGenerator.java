@@ -0,0 +1,53 @@
+package com.yandex.practicum.filmorate.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class HiLoIdGenerator {
+    private final LongSupplier nextHi;
+    private final int blockSize;
+    private volatile Block block;
+
+    public HiLoIdGenerator(LongSupplier nextHi, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока идентификаторов должен быть положительным.");
+        }
+        this.nextHi = nextHi;
+        this.blockSize = blockSize;
+    }
+
+    public int nextId() {
+        while (true) {
+            Block current = block;
+            if (current != null) {
+                long id = current.next.getAndIncrement();
+                if (id < current.end) {
+                    return (int) id;
+                }
+            }
+            refill(current);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block != exhausted) {
+            return;
+        }
+        long hi = nextHi.getAsLong();
+        long start = (hi - 1) * blockSize + 1;
+        if (hi < 1 || start + blockSize - 1 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Идентификаторы исчерпаны, значение последовательности: " + hi);
+        }
+        block = new Block(start, start + blockSize);
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
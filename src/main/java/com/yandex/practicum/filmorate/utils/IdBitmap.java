@@ -0,0 +1,38 @@
+package com.yandex.practicum.filmorate.utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class IdBitmap {
+    private volatile AtomicLongArray words = new AtomicLongArray(1);
+
+    public boolean contains(int id) {
+        AtomicLongArray current = words;
+        return id >= 0 && (id >>> 6) < current.length() && (current.get(id >>> 6) & (1L << id)) != 0;
+    }
+
+    public synchronized void add(int id) {
+        if (id < 0) {
+            return;
+        }
+        int word = id >>> 6;
+        if (word >= words.length()) {
+            AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, words.length() * 2));
+            for (int i = 0; i < words.length(); i++) {
+                grown.set(i, words.get(i));
+            }
+            words = grown;
+        }
+        words.set(word, words.get(word) | (1L << id));
+    }
+
+    public synchronized void addAll(Collection<Integer> ids) {
+        ids.forEach(this::add);
+    }
+
+    public synchronized void remove(int id) {
+        if (id >= 0 && (id >>> 6) < words.length()) {
+            words.set(id >>> 6, words.get(id >>> 6) & ~(1L << id));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.yandex.practicum.filmorate.utils;
+
+import com.yandex.practicum.filmorate.exeption.ValidationException;
+import com.yandex.practicum.filmorate.model.Page;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class Pagination {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private Pagination() {
+    }
+
+    public static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть больше нуля.");
+        }
+        if (limit > MAX_LIMIT) {
+            throw new ValidationException("Размер страницы не может быть больше " + MAX_LIMIT + ".");
+        }
+        return limit;
+    }
+
+    public static long[] decode(String cursor, int size) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != size) {
+                throw new ValidationException("Некорректный курсор страницы.");
+            }
+            return Arrays.stream(parts).mapToLong(Long::parseLong).toArray();
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор страницы.");
+        }
+    }
+
+    public static String encode(long... keys) {
+        String value = Arrays.stream(keys)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(":"));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static <T> Page<T> page(List<T> rows, int limit, Function<T, long[]> key) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new Page<>(items, items.isEmpty() ? null : encode(key.apply(items.get(limit - 1))));
+    }
+
+    public static <T> ResponseEntity<List<T>> toResponse(Page<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+}
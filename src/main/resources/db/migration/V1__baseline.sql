@@ -1,16 +1,3 @@
-DROP TABLE IF EXISTS users CASCADE;
-DROP TABLE IF EXISTS genre CASCADE;
-DROP TABLE IF EXISTS mpa CASCADE;
-DROP TABLE IF EXISTS film CASCADE;
-DROP TABLE IF EXISTS user_friends CASCADE;
-DROP TABLE IF EXISTS film_likes CASCADE;
-DROP TABLE IF EXISTS film_genre CASCADE;
-DROP TABLE IF EXISTS director CASCADE;
-DROP TABLE IF EXISTS directors CASCADE;
-DROP TABLE IF EXISTS reviews CASCADE;
-DROP TABLE IF EXISTS review_reactions CASCADE;
-DROP TABLE IF EXISTS history_event CASCADE;
-
 CREATE TABLE IF NOT EXISTS users
 (
     id       INTEGER PRIMARY KEY,
@@ -103,4 +90,14 @@ CREATE TABLE IF NOT EXISTS history_event
     operation  varchar(10) NOT NULL,
     entity_id  INTEGER     NOT NULL,
     timestamp  BIGINT      NOT NULL
-);
\ No newline at end of file
+);
+
+MERGE INTO mpa (id, name) KEY (id)
+VALUES (1, 'G'), (2, 'PG'), (3, 'PG-13'), (4, 'R'), (5, 'NC-17');
+
+MERGE INTO genre (id, name) KEY (id)
+VALUES (1, 'Комедия'), (2, 'Драма'), (3, 'Мультфильм'), (4, 'Триллер'), (5, 'Документальный'), (6, 'Боевик');
+
+ALTER TABLE mpa ALTER COLUMN id RESTART WITH 6;
+
+ALTER TABLE genre ALTER COLUMN id RESTART WITH 7;
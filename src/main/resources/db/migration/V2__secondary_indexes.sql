@@ -0,0 +1,37 @@
+CREATE SEQUENCE IF NOT EXISTS film_id_seq START WITH 1 INCREMENT BY 1;
+
+CREATE SEQUENCE IF NOT EXISTS user_id_seq START WITH 1 INCREMENT BY 1;
+
+ALTER TABLE film ADD COLUMN IF NOT EXISTS like_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE film
+SET like_count = (SELECT COUNT(*) FROM film_likes AS l WHERE l.film_id = film.id);
+
+CREATE INDEX IF NOT EXISTS film_like_count_idx ON film (like_count DESC, id);
+
+DELETE FROM directors
+WHERE film_id IS NULL
+   OR director_id IS NULL;
+
+DELETE FROM directors AS d
+WHERE EXISTS(SELECT 1
+             FROM directors AS o
+             WHERE o.film_id = d.film_id
+               AND o.director_id = d.director_id
+               AND o._ROWID_ < d._ROWID_);
+
+ALTER TABLE directors ALTER COLUMN film_id SET NOT NULL;
+
+ALTER TABLE directors ALTER COLUMN director_id SET NOT NULL;
+
+ALTER TABLE directors ADD CONSTRAINT IF NOT EXISTS directors_pk PRIMARY KEY (film_id, director_id);
+
+CREATE INDEX IF NOT EXISTS directors_director_id_idx ON directors (director_id);
+
+CREATE INDEX IF NOT EXISTS film_likes_film_id_idx ON film_likes (film_id);
+
+CREATE INDEX IF NOT EXISTS history_event_user_id_idx ON history_event (user_id, event_id);
+
+CREATE INDEX IF NOT EXISTS reviews_film_id_idx ON reviews (film_id);
+
+CREATE INDEX IF NOT EXISTS review_reactions_review_id_idx ON review_reactions (review_id);
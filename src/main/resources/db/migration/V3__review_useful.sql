@@ -0,0 +1,8 @@
+ALTER TABLE reviews ADD COLUMN IF NOT EXISTS useful INTEGER NOT NULL DEFAULT 0;
+
+UPDATE reviews
+SET useful = (SELECT COALESCE(SUM(r.reaction), 0) FROM review_reactions AS r WHERE r.review_id = reviews.id);
+
+CREATE INDEX IF NOT EXISTS reviews_film_useful_idx ON reviews (film_id, useful DESC, id);
+
+CREATE INDEX IF NOT EXISTS reviews_useful_idx ON reviews (useful DESC, id);
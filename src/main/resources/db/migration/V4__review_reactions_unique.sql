@@ -0,0 +1,11 @@
+DELETE FROM review_reactions AS d
+WHERE EXISTS(SELECT 1
+             FROM review_reactions AS o
+             WHERE o.user_id = d.user_id
+               AND o.review_id = d.review_id
+               AND o.id > d.id);
+
+ALTER TABLE review_reactions ADD CONSTRAINT IF NOT EXISTS review_reactions_user_review_uq UNIQUE (user_id, review_id);
+
+UPDATE reviews
+SET useful = (SELECT COALESCE(SUM(r.reaction), 0) FROM review_reactions AS r WHERE r.review_id = reviews.id);
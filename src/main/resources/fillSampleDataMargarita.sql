@@ -99,3 +99,5 @@ INSERT INTO "DIRECTORS"
 (FILM_ID, DIRECTOR_ID)
 VALUES(1, 1), (2,2), (3,3), (4,3), (5,1);
 
+UPDATE "FILM" -- пересчитываем счетчики лайков после прямой вставки в FILM_LIKES
+SET LIKE_COUNT = (SELECT COUNT(*) FROM "FILM_LIKES" WHERE "FILM_LIKES".FILM_ID = "FILM".ID);
@@ -3,6 +3,10 @@ package com.yandex.practicum.filmorate.controller;
 import com.yandex.practicum.filmorate.exeption.NotFoundException;
 import com.yandex.practicum.filmorate.exeption.ValidationException;
 import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.Genre;
+import com.yandex.practicum.filmorate.model.ImportError;
+import com.yandex.practicum.filmorate.model.ImportResult;
+import com.yandex.practicum.filmorate.model.IngestResult;
 import com.yandex.practicum.filmorate.model.Mpa;
 import com.yandex.practicum.filmorate.model.User;
 import com.yandex.practicum.filmorate.service.UserService;
@@ -13,9 +17,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +41,8 @@ class FilmControllerTest {
 
     @Autowired
     private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @BeforeEach
     public void createFilm() {
@@ -149,6 +162,14 @@ class FilmControllerTest {
         assertFalse(films.isEmpty());
     }
 
+    @Test
+    void shouldExceptionPopularFilmsWithNonPositiveCount() {
+        ValidationException ex = assertThrows(ValidationException.class,
+                () -> filmController.getPopularFilms(-1, null, null));
+        assertEquals("Количество фильмов должно быть больше нуля.", ex.getMessage());
+        assertThrows(ValidationException.class, () -> filmController.getPopularFilms(0, null, null));
+    }
+
     @Test
     void shouldReturnPopularFilmsWithNonNullCount() {
         Film film = filmController.createFilm(template);
@@ -161,5 +182,175 @@ class FilmControllerTest {
         assertFalse(films.contains(withoutLike));
     }
 
+    @Test
+    void shouldReturnAllFilmsWithDetails() {
+        template.getGenres().add(new Genre(2, null));
+        Film film = filmController.createFilm(template);
+        filmController.likeFilm(film.getId(), user.getId());
+
+        Film returned = filmController.getAllFilms(null, null).getBody().stream()
+                .filter(f -> f.getId() == film.getId())
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(1, returned.getGenres().size());
+        assertEquals("Драма", returned.getGenres().iterator().next().getName());
+        assertTrue(returned.getLikes().contains(user.getId()));
+    }
+
+    @Test
+    void shouldOrderPopularFilmsByLikeCount() {
+        User other = userService.createUser(new User(0, "other@dfsdfd.com", "other", "other",
+                LocalDate.of(2000, 10, 10)));
+        Film first = filmController.createFilm(template);
+        Film second = filmController.createFilm(template);
+
+        filmController.likeFilm(first.getId(), user.getId());
+        filmController.likeFilm(first.getId(), user.getId());
+        filmController.likeFilm(second.getId(), user.getId());
+        filmController.likeFilm(second.getId(), other.getId());
+        List<Integer> ids = filmController.getPopularFilms(100, null, null).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+
+        assertTrue(ids.indexOf(second.getId()) < ids.indexOf(first.getId()));
+    }
+
+    @Test
+    void shouldKeepLikesAndFriendsAfterUserUpdate() {
+        User friend = userService.createUser(new User(0, "updated@dfsdfd.com", "updated", "updated",
+                LocalDate.of(2000, 10, 10)));
+        userService.addToFriends(user.getId(), friend.getId());
+        Film film = filmController.createFilm(template);
+        filmController.likeFilm(film.getId(), user.getId());
+
+        user.setName("renamed");
+        User updated = userService.updateUser(user);
 
-}
\ No newline at end of file
+        assertEquals("renamed", updated.getName());
+        assertTrue(updated.getFriends().contains(friend.getId()));
+        assertEquals(1, likeCount(film.getId()));
+        assertTrue(filmController.getFilmById(film.getId()).getLikes().contains(user.getId()));
+    }
+
+    @Test
+    void shouldReturnCommonFilmsWithEqualLikeCounts() {
+        User friend = userService.createUser(new User(0, "friend@dfsdfd.com", "friend", "friend",
+                LocalDate.of(2000, 10, 10)));
+        Film first = filmController.createFilm(template);
+        Film second = filmController.createFilm(template);
+        Film onlyUser = filmController.createFilm(template);
+
+        filmController.likeFilm(first.getId(), user.getId());
+        filmController.likeFilm(first.getId(), friend.getId());
+        filmController.likeFilm(second.getId(), user.getId());
+        filmController.likeFilm(second.getId(), friend.getId());
+        filmController.likeFilm(onlyUser.getId(), user.getId());
+        List<Integer> ids = filmController.getCommonFilms(user.getId(), friend.getId()).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(first.getId(), second.getId()), ids);
+    }
+
+    @Test
+    void shouldReportImportErrorPositions() throws IOException {
+        String body = String.join("\n",
+                importedFilm("batchFirstImported", "2000-10-10"),
+                importedFilm("", "2000-10-10"),
+                importedFilm("batchBrokenDate", "not-a-date"),
+                importedFilm("batchSecondImported", "2000-10-10"));
+
+        ImportResult result = filmController.importFilms(request(MediaType.APPLICATION_NDJSON_VALUE, body));
+
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(List.of(1, 2), result.getErrors().stream()
+                .map(ImportError::getIndex)
+                .sorted()
+                .collect(Collectors.toList()));
+        assertEquals(1, filmController.searchByParameter("batchSecondImported", Optional.of("title"), null)
+                .size());
+    }
+
+    @Test
+    void shouldImportFilmsWithNullCollectionsAndRejectUnknownDirectors() throws IOException {
+        String film = importedFilm("batchNullCollections", "2000-10-10");
+        String body = String.join("\n",
+                film.replace("}}", "},\"genres\":null,\"directors\":null}"),
+                film.replace("}}", "},\"directors\":[{\"id\":" + Integer.MAX_VALUE + "}]}"));
+
+        ImportResult result = filmController.importFilms(request(MediaType.APPLICATION_NDJSON_VALUE, body));
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals("Режиссера с id = " + Integer.MAX_VALUE + " не существует.",
+                result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void shouldImportFilmsFromJsonArray() throws IOException {
+        String body = "[" + importedFilm("batchArrayFirst", "2000-10-10") + ","
+                + importedFilm("batchArraySecond", "2001-10-10") + "]";
+
+        ImportResult result = filmController.importFilms(request(MediaType.APPLICATION_JSON_VALUE, body));
+
+        assertEquals(2, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    @Test
+    void shouldIngestLikesFromCsvAndUpdatePopularity() throws IOException {
+        User other = userService.createUser(new User(0, "ingest@dfsdfd.com", "ingest", "ingest",
+                LocalDate.of(2000, 10, 10)));
+        Film lessPopular = filmController.createFilm(template);
+        Film morePopular = filmController.createFilm(template);
+        String body = String.join("\n",
+                "userId,filmId",
+                user.getId() + "," + morePopular.getId(),
+                user.getId() + "," + morePopular.getId(),
+                other.getId() + "," + morePopular.getId(),
+                user.getId() + "," + lessPopular.getId(),
+                "-1," + lessPopular.getId());
+
+        IngestResult result = filmController.ingestLikes(false, request("text/csv", body));
+
+        assertEquals(5, result.getProcessed());
+        assertEquals(3, result.getInserted());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getFailed());
+        assertEquals(5, result.getErrors().get(0).getIndex());
+
+        IngestResult repeated = filmController.ingestLikes(false, request("text/csv",
+                "userId,filmId\n" + user.getId() + "," + lessPopular.getId()));
+
+        assertEquals(0, repeated.getInserted());
+        assertEquals(1, repeated.getDuplicates());
+        assertEquals(2, likeCount(morePopular.getId()));
+        assertEquals(1, likeCount(lessPopular.getId()));
+        List<Integer> popular = filmController.getPopularFilms(null, null, null).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        assertTrue(popular.contains(lessPopular.getId()));
+        assertTrue(popular.indexOf(morePopular.getId()) < popular.indexOf(lessPopular.getId()));
+        assertEquals(2, filmController.getFilmById(morePopular.getId()).getLikes().size());
+    }
+
+    private int likeCount(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM film WHERE id = ?", Integer.class, filmId);
+    }
+
+    private String importedFilm(String name, String releaseDate) {
+        return "{\"name\":\"" + name + "\",\"description\":\"descr\",\"releaseDate\":\"" + releaseDate
+                + "\",\"duration\":10,\"mpa\":{\"id\":1}}";
+    }
+
+    private MockHttpServletRequest request(String contentType, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/films/batch");
+        request.setContentType(contentType);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,75 @@
+package com.yandex.practicum.filmorate.controller;
+
+import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.Mpa;
+import com.yandex.practicum.filmorate.model.Review;
+import com.yandex.practicum.filmorate.model.User;
+import com.yandex.practicum.filmorate.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+class ReviewsControllerTest {
+    @Autowired
+    private ReviewsController reviewsController;
+    @Autowired
+    private FilmController filmController;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private Review review;
+    private User reader;
+
+    @BeforeEach
+    public void createReview() {
+        User author = userService.createUser(new User(0, "author@dfsdfd.com", "author", "author",
+                LocalDate.of(2000, 10, 10)));
+        reader = userService.createUser(new User(0, "reader@dfsdfd.com", "reader", "reader",
+                LocalDate.of(2000, 10, 10)));
+        Film film = filmController.createFilm(new Film(0, "name", "descr",
+                LocalDate.of(2000, 10, 10), 10, new Mpa(1, "G")));
+        review = reviewsController.createReview(new Review(0, "content", true, author.getId(), film.getId(), 0));
+    }
+
+    @Test
+    void shouldCountRepeatedLikeOnce() {
+        reviewsController.userAddLikeReview(review.getReviewId(), reader.getId());
+        reviewsController.userAddLikeReview(review.getReviewId(), reader.getId());
+
+        assertEquals(1, reactionCount());
+        assertEquals(1, reviewsController.getReviewById(review.getReviewId()).getUseful());
+    }
+
+    @Test
+    void shouldReplaceLikeWithDislike() {
+        reviewsController.userAddLikeReview(review.getReviewId(), reader.getId());
+        reviewsController.userAddDislikeReview(review.getReviewId(), reader.getId());
+
+        assertEquals(1, reactionCount());
+        assertEquals(-1, reviewsController.getReviewById(review.getReviewId()).getUseful());
+    }
+
+    @Test
+    void shouldResetUsefulAfterRemovingReaction() {
+        reviewsController.userAddLikeReview(review.getReviewId(), reader.getId());
+        reviewsController.userDeleteLikeReview(review.getReviewId(), reader.getId());
+
+        assertEquals(0, reactionCount());
+        assertEquals(0, reviewsController.getReviewById(review.getReviewId()).getUseful());
+    }
+
+    private int reactionCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM review_reactions WHERE review_id = ? AND user_id = ?",
+                Integer.class, review.getReviewId(), reader.getId());
+    }
+}
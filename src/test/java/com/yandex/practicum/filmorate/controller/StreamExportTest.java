@@ -0,0 +1,87 @@
+package com.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yandex.practicum.filmorate.model.Film;
+import com.yandex.practicum.filmorate.model.Mpa;
+import com.yandex.practicum.filmorate.model.User;
+import com.yandex.practicum.filmorate.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stream-export;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=" + StreamExportTest.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=1000",
+        "filmorate.export.fetch-size=1"
+})
+class StreamExportTest {
+    static final int POOL_SIZE = 2;
+    private static final int EXPORTS = POOL_SIZE * 4;
+
+    @Autowired
+    private FilmController filmController;
+    @Autowired
+    private UserController userController;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void createData() {
+        User user = userService.createUser(new User(0, "stream@dfsdfd.com", "stream", "stream",
+                LocalDate.of(2000, 10, 10)));
+        User friend = userService.createUser(new User(0, "friend@dfsdfd.com", "friend", "friend",
+                LocalDate.of(2000, 10, 10)));
+        userService.addToFriends(user.getId(), friend.getId());
+        for (int i = 0; i < 3; i++) {
+            Film film = filmController.createFilm(new Film(0, "name" + i, "descr",
+                    LocalDate.of(2000, 10, 10), 10, new Mpa(1, "G")));
+            filmController.likeFilm(film.getId(), user.getId());
+        }
+    }
+
+    @Test
+    void shouldRunMoreParallelExportsThanPoolSize() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(EXPORTS);
+        try {
+            List<Future<JsonNode>> exports = new ArrayList<>();
+            for (int i = 0; i < EXPORTS; i++) {
+                exports.add(executor.submit(export(i % 2 == 0
+                        ? filmController.streamAllFilms().getBody()
+                        : userController.streamAllUsers().getBody())));
+            }
+            for (Future<JsonNode> export : exports) {
+                JsonNode result = export.get(30, TimeUnit.SECONDS);
+                assertTrue(result.isArray());
+                assertTrue(result.size() >= 2);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Callable<JsonNode> export(StreamingResponseBody body) {
+        return () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.writeTo(out);
+            return objectMapper.readTree(out.toByteArray());
+        };
+    }
+}
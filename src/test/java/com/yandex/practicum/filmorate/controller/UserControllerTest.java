@@ -2,6 +2,8 @@ package com.yandex.practicum.filmorate.controller;
 
 import com.yandex.practicum.filmorate.exeption.NotFoundException;
 import com.yandex.practicum.filmorate.exeption.ValidationException;
+import com.yandex.practicum.filmorate.model.ImportError;
+import com.yandex.practicum.filmorate.model.IngestResult;
 import com.yandex.practicum.filmorate.model.User;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.Assertions;
@@ -10,8 +12,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -171,11 +179,47 @@ class UserControllerTest {
         userController.addToFriends(created.getId(), common.getId());
         userController.addToFriends(friend.getId(), common.getId());
 
-        assertFalse(userController.getCommonUserFriends(created.getId(), friend.getId()).isEmpty());
+        assertFalse(userController.getCommonUserFriends(created.getId(), friend.getId(), null, null).getBody().isEmpty());
 
-        assertEquals(userController.getCommonUserFriends(created.getId(), friend.getId()).size(), 1);
-        assertEquals(userController.getCommonUserFriends(created.getId(), common.getId()).size(), 0);
+        assertEquals(userController.getCommonUserFriends(created.getId(), friend.getId(), null, null).getBody().size(), 1);
+        assertEquals(userController.getCommonUserFriends(created.getId(), common.getId(), null, null).getBody().size(), 0);
 
     }
 
+    @Test
+    void shouldIngestFriendshipsFromNdjson() throws IOException {
+        User created = userController.createUser(template);
+        User friend = userController.createUser(createFriend());
+        String body = String.join("\n",
+                friendship(created.getId(), friend.getId()),
+                "{\"userId\":" + created.getId() + "}",
+                friendship(created.getId(), -1),
+                "not json",
+                friendship(created.getId(), friend.getId()));
+
+        IngestResult result = userController.ingestFriendships(false, request(body));
+
+        assertEquals(5, result.getProcessed());
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(1, 2, 3), result.getErrors().stream()
+                .map(ImportError::getIndex)
+                .sorted()
+                .collect(Collectors.toList()));
+        List<User> friends = userController.getUserFriendsById(created.getId(), null, null).getBody();
+        assertEquals(1, friends.size());
+        assertEquals(friend.getId(), friends.get(0).getId());
+    }
+
+    private String friendship(int userId, int friendId) {
+        return "{\"userId\":" + userId + ",\"friendId\":" + friendId + "}";
+    }
+
+    private MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users/friends/batch");
+        request.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactIntSetTest {
+
+    @Test
+    void shouldBehaveLikeHashSet() {
+        Random random = new Random(42);
+        CompactIntSet compact = new CompactIntSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(5_000);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(value), compact.remove(value));
+            } else {
+                assertEquals(expected.add(value), compact.add(value));
+            }
+        }
+        assertEquals(expected, compact);
+        assertEquals(compact, expected);
+        assertEquals(expected.hashCode(), compact.hashCode());
+    }
+
+    @Test
+    void shouldIntersectArrayAndBitmapSets() {
+        CompactIntSet dense = new CompactIntSet();
+        for (int i = 0; i < 4_000; i += 2) {
+            dense.add(i);
+        }
+        CompactIntSet sparse = CompactIntSet.of(1, 2, 4, 3_998, 100_000);
+
+        assertEquals(3, dense.intersectionSize(sparse));
+        assertEquals(CompactIntSet.of(2, 4, 3_998), dense.intersect(sparse));
+        assertEquals(dense.size(), dense.intersectionSize(dense));
+    }
+
+    @Test
+    void shouldIterateInAscendingOrderAndRemoveThroughIterator() {
+        CompactIntSet set = CompactIntSet.of(5, -3, 12, 7);
+        set.addAll(List.of(7, 1));
+
+        assertArrayEquals(new int[]{-3, 1, 5, 7, 12}, set.toIntArray());
+        set.removeIf(value -> value % 2 != 0);
+        assertEquals(Set.of(12), set);
+    }
+}
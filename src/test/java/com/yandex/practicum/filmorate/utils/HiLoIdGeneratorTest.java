@@ -0,0 +1,45 @@
+package com.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HiLoIdGeneratorTest {
+
+    @Test
+    void shouldHandOutSequentialIdsFromBlocks() {
+        AtomicLong sequence = new AtomicLong();
+        HiLoIdGenerator generator = new HiLoIdGenerator(sequence::incrementAndGet, 10);
+
+        for (int expected = 1; expected <= 25; expected++) {
+            assertEquals(expected, generator.nextId());
+        }
+        assertEquals(3, sequence.get());
+    }
+
+    @Test
+    void shouldNotRepeatIdsUnderConcurrentLoad() {
+        AtomicLong sequence = new AtomicLong();
+        HiLoIdGenerator generator = new HiLoIdGenerator(sequence::incrementAndGet, 7);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 100_000).parallel().forEach(i -> assertTrue(ids.add(generator.nextId())));
+
+        assertEquals(100_000, ids.size());
+    }
+
+    @Test
+    void shouldContinueAfterRestartFromSequence() {
+        AtomicLong sequence = new AtomicLong();
+        HiLoIdGenerator first = new HiLoIdGenerator(sequence::incrementAndGet, 10);
+        first.nextId();
+        HiLoIdGenerator restarted = new HiLoIdGenerator(sequence::incrementAndGet, 10);
+
+        assertEquals(11, restarted.nextId());
+    }
+}
@@ -0,0 +1,82 @@
+package com.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBitmapTest {
+
+    @Test
+    void shouldAddAndRemoveIds() {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(0);
+        bitmap.add(63);
+        bitmap.addAll(List.of(5, 7));
+
+        assertTrue(bitmap.contains(0));
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(7));
+        assertTrue(bitmap.contains(63));
+        assertFalse(bitmap.contains(6));
+
+        bitmap.remove(5);
+        bitmap.remove(5);
+
+        assertFalse(bitmap.contains(5));
+        assertTrue(bitmap.contains(7));
+    }
+
+    @Test
+    void shouldGrowAndKeepExistingIds() {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(3);
+        bitmap.add(64);
+        bitmap.add(1_000_000);
+
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(64));
+        assertTrue(bitmap.contains(1_000_000));
+        assertFalse(bitmap.contains(999_999));
+        assertFalse(bitmap.contains(1_000_001));
+    }
+
+    @Test
+    void shouldIgnoreNegativeAndOutOfRangeIds() {
+        IdBitmap bitmap = new IdBitmap();
+        bitmap.add(-1);
+        bitmap.remove(-1);
+        bitmap.remove(Integer.MAX_VALUE);
+
+        assertFalse(bitmap.contains(-1));
+        assertFalse(bitmap.contains(Integer.MIN_VALUE));
+        assertFalse(bitmap.contains(64));
+        assertFalse(bitmap.contains(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void shouldNotLoseIdsAddedConcurrently() throws InterruptedException {
+        IdBitmap bitmap = new IdBitmap();
+        int threads = 4;
+        int idsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            executor.execute(() -> {
+                for (int i = 0; i < idsPerThread; i++) {
+                    bitmap.add(i * threads + offset);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (int id = 0; id < threads * idsPerThread; id++) {
+            assertTrue(bitmap.contains(id));
+        }
+    }
+}
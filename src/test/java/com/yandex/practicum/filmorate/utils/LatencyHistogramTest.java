@@ -0,0 +1,31 @@
+package com.yandex.practicum.filmorate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void shouldEstimatePercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 100L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(50_050, histogram.getMean(), 0.001);
+        assertEquals(50_000, histogram.percentile(50), 50_000 * 0.125);
+        assertEquals(99_000, histogram.percentile(99), 99_000 * 0.125);
+        assertEquals(100_000, histogram.percentile(100));
+        assertEquals(100_000, histogram.getMax());
+    }
+
+    @Test
+    void shouldReturnZeroForEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.getMean());
+    }
+}
@@ -0,0 +1,34 @@
+package com.yandex.practicum.filmorate.utils;
+
+import com.yandex.practicum.filmorate.exeption.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaginationTest {
+
+    @Test
+    void shouldUseDefaultLimitWhenMissing() {
+        assertEquals(Pagination.DEFAULT_LIMIT, Pagination.limit(null));
+    }
+
+    @Test
+    void shouldAcceptLimitsUpToMaximum() {
+        assertEquals(1, Pagination.limit(1));
+        assertEquals(Pagination.MAX_LIMIT, Pagination.limit(Pagination.MAX_LIMIT));
+    }
+
+    @Test
+    void shouldRejectNonPositiveLimit() {
+        assertThrows(ValidationException.class, () -> Pagination.limit(0));
+        assertThrows(ValidationException.class, () -> Pagination.limit(-1));
+    }
+
+    @Test
+    void shouldRejectLimitAboveMaximum() {
+        assertThrows(ValidationException.class, () -> Pagination.limit(Pagination.MAX_LIMIT + 1));
+        ValidationException ex = assertThrows(ValidationException.class,
+                () -> Pagination.limit(Integer.MAX_VALUE));
+        assertEquals("Размер страницы не может быть больше " + Pagination.MAX_LIMIT + ".", ex.getMessage());
+    }
+}